@@ -0,0 +1,361 @@
+package project2;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    The CachingFakebookOracle class is derived from the FakebookOracle class and remembers the
+    results of another FakebookOracle, keyed by query and arguments, so that asking the same
+    question again is a memory lookup. Results expire after a time-to-live, the least recently
+    used ones are dropped once the cache is full, and invalidate() drops every result that
+    reads a table which has changed. Only results that the delegate returns normally are
+    cached, so a delegate that hides failures behind placeholder or partial results must be
+    set to throw instead (see StudentFakebookOracle.setPropagateErrors). Results are shared
+    between callers and must therefore not be modified. Hits, misses, evictions,
+    expirations, and the time spent loading are counted, and toString() summarizes them.
+*/
+public final class CachingFakebookOracle extends FakebookOracle {
+    // [Constructor]
+    // REQUIRES: <maxEntries> is positive, and <delegate> reports failures by throwing
+    // EFFECTS:  caches at most <maxEntries> results of <delegate>, each for <ttlMillis>
+    //           milliseconds (forever if <ttlMillis> is not positive)
+    public CachingFakebookOracle(FakebookOracle delegate, int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1000000L : 0L;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        generations = new long[FakebookSnapshot.TableCount];
+    }
+
+    @Override
+    public BirthMonthInfo findMonthOfBirthInfo() throws SQLException {
+        return cached("findMonthOfBirthInfo()", tables(FakebookSnapshot.Users), new Loader<BirthMonthInfo>() {
+            public BirthMonthInfo load() throws SQLException {
+                return delegate.findMonthOfBirthInfo();
+            }
+        });
+    }
+
+    @Override
+    public FirstNameInfo findNameInfo() throws SQLException {
+        return cached("findNameInfo()", tables(FakebookSnapshot.Users), new Loader<FirstNameInfo>() {
+            public FirstNameInfo load() throws SQLException {
+                return delegate.findNameInfo();
+            }
+        });
+    }
+
+    @Override
+    public FakebookArrayList<UserInfo> lonelyUsers() throws SQLException {
+        return cached("lonelyUsers()", tables(FakebookSnapshot.Users, FakebookSnapshot.Friends),
+            new Loader<FakebookArrayList<UserInfo>>() {
+                public FakebookArrayList<UserInfo> load() throws SQLException {
+                    return delegate.lonelyUsers();
+                }
+            });
+    }
+
+    @Override
+    public FakebookArrayList<UserInfo> liveAwayFromHome() throws SQLException {
+        return cached("liveAwayFromHome()",
+            tables(FakebookSnapshot.Users, FakebookSnapshot.CurrentCities, FakebookSnapshot.HometownCities),
+            new Loader<FakebookArrayList<UserInfo>>() {
+                public FakebookArrayList<UserInfo> load() throws SQLException {
+                    return delegate.liveAwayFromHome();
+                }
+            });
+    }
+
+    @Override
+    public FakebookArrayList<TaggedPhotoInfo> findPhotosWithMostTags(final int num) throws SQLException {
+        return cached("findPhotosWithMostTags(" + num + ")",
+            tables(FakebookSnapshot.Users, FakebookSnapshot.Albums, FakebookSnapshot.Photos, FakebookSnapshot.Tags),
+            new Loader<FakebookArrayList<TaggedPhotoInfo>>() {
+                public FakebookArrayList<TaggedPhotoInfo> load() throws SQLException {
+                    return delegate.findPhotosWithMostTags(num);
+                }
+            });
+    }
+
+    @Override
+    public FakebookArrayList<MatchPair> matchMaker(final int num, final int yearDiff) throws SQLException {
+        return cached("matchMaker(" + num + "," + yearDiff + ")",
+            tables(FakebookSnapshot.Users, FakebookSnapshot.Friends, FakebookSnapshot.Albums,
+                FakebookSnapshot.Photos, FakebookSnapshot.Tags),
+            new Loader<FakebookArrayList<MatchPair>>() {
+                public FakebookArrayList<MatchPair> load() throws SQLException {
+                    return delegate.matchMaker(num, yearDiff);
+                }
+            });
+    }
+
+    @Override
+    public FakebookArrayList<UsersPair> suggestFriends(final int num) throws SQLException {
+        return cached("suggestFriends(" + num + ")", tables(FakebookSnapshot.Users, FakebookSnapshot.Friends),
+            new Loader<FakebookArrayList<UsersPair>>() {
+                public FakebookArrayList<UsersPair> load() throws SQLException {
+                    return delegate.suggestFriends(num);
+                }
+            });
+    }
+
+    @Override
+    public EventStateInfo findEventStates() throws SQLException {
+        return cached("findEventStates()", tables(FakebookSnapshot.Cities, FakebookSnapshot.Events),
+            new Loader<EventStateInfo>() {
+                public EventStateInfo load() throws SQLException {
+                    return delegate.findEventStates();
+                }
+            });
+    }
+
+    @Override
+    public AgeInfo findAgeInfo(final long userID) throws SQLException {
+        return cached(ageInfoKey(userID), tables(FakebookSnapshot.Users, FakebookSnapshot.Friends),
+            new Loader<AgeInfo>() {
+                public AgeInfo load() throws SQLException {
+                    return delegate.findAgeInfo(userID);
+                }
+            });
+    }
+
+    // EFFECTS:  answers the cached users from the cache and passes all the others to the
+    //           delegate's batch findAgeInfo in one call
+    @Override
+    public Map<Long, AgeInfo> findAgeInfo(Collection<Long> userIDs) throws SQLException {
+        Map<Long, AgeInfo> results = new LinkedHashMap<Long, AgeInfo>();
+        Map<Long, AgeInfo> missing = new LinkedHashMap<Long, AgeInfo>();
+        for (Long userID : userIDs) {
+            if (!results.containsKey(userID)) {
+                AgeInfo info = (AgeInfo)lookup(ageInfoKey(userID));
+                results.put(userID, info);
+                if (info == null) {
+                    missing.put(userID, null);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return results;
+        }
+
+        int tables = tables(FakebookSnapshot.Users, FakebookSnapshot.Friends);
+        long generation = generation(tables);
+        long begin = System.nanoTime();
+        Map<Long, AgeInfo> loaded = delegate.findAgeInfo(missing.keySet());
+        long end = System.nanoTime();
+        synchronized (this) {
+            loadNanos += end - begin;
+        }
+        for (Map.Entry<Long, AgeInfo> info : loaded.entrySet()) {
+            results.put(info.getKey(), info.getValue());
+            store(ageInfoKey(info.getKey()), tables, generation, info.getValue(), end);
+        }
+        return results;
+    }
+
+    @Override
+    public FakebookArrayList<SiblingInfo> findPotentialSiblings() throws SQLException {
+        return cached("findPotentialSiblings()",
+            tables(FakebookSnapshot.Users, FakebookSnapshot.Friends, FakebookSnapshot.HometownCities),
+            new Loader<FakebookArrayList<SiblingInfo>>() {
+                public FakebookArrayList<SiblingInfo> load() throws SQLException {
+                    return delegate.findPotentialSiblings();
+                }
+            });
+    }
+
+    // [Invalidation Functions]
+    // MODIFIES: this
+    // EFFECTS:  drops every cached result that reads the table at position <table> (see
+    //           FakebookSnapshot), or the table named <tableName> (one of the table names in
+    //           FakebookOracleConstants, compared without regard to case); unknown names drop
+    //           everything, since the results they affect cannot be told apart
+    public synchronized void invalidate(int table) {
+        generations[table]++;
+        Iterator<Entry> cached = entries.values().iterator();
+        while (cached.hasNext()) {
+            if ((cached.next().tables & (1 << table)) != 0) {
+                cached.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public void invalidate(String tableName) {
+        for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+            if (FakebookSnapshot.sourceTableName(table).equalsIgnoreCase(tableName)) {
+                invalidate(table);
+                return;
+            }
+        }
+        invalidateAll();
+    }
+
+    public synchronized void invalidateAll() {
+        for (int table = 0; table < generations.length; table++) {
+            generations[table]++;
+        }
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    // [Statistics Accessors]
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    public synchronized double getTotalLoadMillis() {
+        return loadNanos / 1e6;
+    }
+
+    // [CachingFakebookOracle-to-String Converter]
+    // EFFECTS:  returns a one-line summary of the cache's usage statistics
+    public synchronized String toString() {
+        long requests = hits + misses;
+        return String.format("Result cache: %d/%d entries, %d hit(s), %d miss(es), hit rate %.1f%%, " +
+            "%d evicted, %d expired, %d invalidated, load time %.3f ms total / %.3f ms avg",
+            entries.size(), maxEntries, hits, misses, requests == 0 ? 0.0 : 100.0 * hits / requests,
+            evictions, expirations, invalidations, loadNanos / 1e6, misses == 0 ? 0.0 : loadNanos / 1e6 / misses);
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns the cached result for <key>, loading and caching it with <loader> on
+    //           a miss; the delegate is called outside the lock, so a slow query does not
+    //           hold up hits on other keys, and a result is only cached if none of <tables>
+    //           was invalidated while it loaded
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, int tables, Loader<T> loader) throws SQLException {
+        Object value = lookup(key);
+        if (value != null) {
+            return (T)value;
+        }
+
+        long generation = generation(tables);
+        long begin = System.nanoTime();
+        T loaded = loader.load();
+        long end = System.nanoTime();
+        synchronized (this) {
+            loadNanos += end - begin;
+        }
+        store(key, tables, generation, loaded, end);
+        return loaded;
+    }
+
+    // EFFECTS:  returns the live cached result for <key> and counts a hit, or returns null
+    //           and counts a miss
+    private synchronized Object lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.loadedAt > ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    // EFFECTS:  caches <value> under <key>, unless one of <tables> has been invalidated
+    //           since <generation> was taken, in which case <value> may be stale
+    private synchronized void store(String key, int tables, long generation, Object value, long loadedAt) {
+        if (value == null || generation(tables) != generation) {
+            return;
+        }
+        entries.put(key, new Entry(value, tables, loadedAt));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // EFFECTS:  returns the number of invalidations of <tables> so far, which only grows
+    private synchronized long generation(int tables) {
+        long generation = 0;
+        for (int table = 0; table < generations.length; table++) {
+            if ((tables & (1 << table)) != 0) {
+                generation += generations[table];
+            }
+        }
+        return generation;
+    }
+
+    private static String ageInfoKey(long userID) {
+        return "findAgeInfo(" + userID + ")";
+    }
+
+    // EFFECTS:  returns the bit set of the given table positions
+    private static int tables(int... positions) {
+        int set = 0;
+        for (int table : positions) {
+            set |= 1 << table;
+        }
+        return set;
+    }
+
+    /*
+        A Loader runs one query against the delegate.
+    */
+    private interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    /*
+        An Entry is one cached result, along with the tables it reads and when it was loaded.
+    */
+    private static final class Entry {
+        Entry(Object value, int tables, long loadedAt) {
+            this.value = value;
+            this.tables = tables;
+            this.loadedAt = loadedAt;
+        }
+
+        final Object value;
+        final int tables;
+        final long loadedAt;
+    }
+
+    // Member Variables
+    private final FakebookOracle delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private final long[] generations;             // invalidations of every table so far
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long loadNanos;
+}
@@ -0,0 +1,264 @@
+package project2;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+    The FakebookAggregates class keeps the aggregates behind Queries 0, 1, and 7 up to date
+    as rows come and go, so that those queries are answered without scanning any table: the
+    users per birth month, the first names per length and per number of users, and the
+    events per state. Changes arrive through insert() and delete(), one row at a time, laid
+    out as in FakebookSnapshot (integer columns in <row>, text columns in <text>, NULL as
+    FakebookSnapshot.NULL or null); rows of tables other than Users, Cities, and Events are
+    ignored. fromSnapshot() rebuilds everything from scratch, and verify() compares the
+    incrementally maintained answers against such a rebuild.
+*/
+final class FakebookAggregates {
+    // [Constructor]
+    // EFFECTS:  creates aggregates of empty tables
+    public FakebookAggregates() {
+        usersByMonth = new TreeMap<Integer, TreeMap<Long, UserInfo>>();
+        names = new FakebookNameDictionary();
+        nameCounts = new HashMap<String, Integer>();
+        namesByLength = new TreeMap<Integer, TreeSet<String>>();
+        namesByCount = new TreeMap<Integer, TreeSet<String>>();
+        cityStates = new HashMap<Integer, String>();
+        cityEvents = new HashMap<Integer, Integer>();
+        stateEvents = new HashMap<String, Integer>();
+        statesByCount = new TreeMap<Integer, TreeSet<String>>();
+    }
+
+    // [Rebuild Function]
+    // EFFECTS:  returns the aggregates of every row in <snapshot>
+    public static FakebookAggregates fromSnapshot(FakebookSnapshot snapshot) {
+        FakebookAggregates aggregates = new FakebookAggregates();
+        int[] row = new int[8];
+        String[] text = new String[8];
+        int[] tables = { FakebookSnapshot.Users, FakebookSnapshot.Cities, FakebookSnapshot.Events };
+        for (int table : tables) {
+            FakebookTable data = snapshot.getTable(table);
+            for (int at = 0; at < data.getRowCount(); at++) {
+                for (int column = 0; column < data.getColumnCount(); column++) {
+                    row[column] = data.get(at, column);
+                    text[column] = FakebookSnapshot.isText(table, column) ? snapshot.text(row[column]) : null;
+                }
+                aggregates.insert(table, row, text);
+            }
+        }
+        return aggregates;
+    }
+
+    // [Change Feed Functions]
+    // REQUIRES: for insert, no row with the same key (User_ID, City_ID, Event_ID) is
+    //           present; for delete, <row> and <text> hold the row as it was inserted
+    // MODIFIES: this
+    // EFFECTS:  adds <row> of <table> to, or removes it from, the aggregates
+    public synchronized void insert(int table, int[] row, String[] text) {
+        change(table, row, text, 1);
+    }
+
+    public synchronized void delete(int table, int[] row, String[] text) {
+        change(table, row, text, -1);
+    }
+
+    // [Answer Functions]
+    // EFFECTS:  return the answers to Queries 0, 1, and 7 for the current rows, exactly as
+    //           the query engines report them
+    public synchronized BirthMonthInfo getBirthMonthInfo() {
+        // the most popular month is the first with the highest count, and the least
+        // popular one the last with the lowest count
+        int mostMonth = 0;
+        int leastMonth = 0;
+        int mostCount = 0;
+        int leastCount = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, TreeMap<Long, UserInfo>> entry : usersByMonth.entrySet()) {
+            int count = entry.getValue().size();
+            if (count > mostCount) {
+                mostMonth = entry.getKey();
+                mostCount = count;
+            }
+            if (count <= leastCount) {
+                leastMonth = entry.getKey();
+                leastCount = count;
+            }
+        }
+
+        BirthMonthInfo info = new BirthMonthInfo(monthTotal, mostMonth, leastMonth);
+        if (usersByMonth.isEmpty()) {
+            return info;
+        }
+        for (UserInfo user : usersByMonth.get(mostMonth).values()) {
+            info.addMostPopularBirthMonthUser(user);
+        }
+        for (UserInfo user : usersByMonth.get(leastMonth).values()) {
+            info.addLeastPopularBirthMonthUser(user);
+        }
+        return info;
+    }
+
+    public synchronized FirstNameInfo getFirstNameInfo() {
+        FirstNameInfo info = new FirstNameInfo();
+        if (namesByLength.isEmpty()) {
+            info.setCommonNameCount(0);
+            return info;
+        }
+        for (String name : namesByLength.lastEntry().getValue()) {
+            info.addLongName(name);
+        }
+        for (String name : namesByLength.firstEntry().getValue()) {
+            info.addShortName(name);
+        }
+        for (String name : namesByCount.lastEntry().getValue().descendingSet()) {
+            info.addCommonName(name);
+        }
+        info.setCommonNameCount(namesByCount.lastKey());
+        return info;
+    }
+
+    public synchronized EventStateInfo getEventStateInfo() {
+        if (statesByCount.isEmpty()) {
+            return new EventStateInfo(-1);
+        }
+        EventStateInfo info = new EventStateInfo(statesByCount.lastKey());
+        for (String state : statesByCount.lastEntry().getValue()) {
+            info.addState(state);
+        }
+        return info;
+    }
+
+    // [Verify Function]
+    // EFFECTS:  returns true if the answers kept here are the same as those of a full
+    //           rebuild from <snapshot>
+    public boolean verify(FakebookSnapshot snapshot) {
+        FakebookAggregates rebuilt = fromSnapshot(snapshot);
+        return getBirthMonthInfo().toString().equals(rebuilt.getBirthMonthInfo().toString())
+            && getFirstNameInfo().toString().equals(rebuilt.getFirstNameInfo().toString())
+            && getEventStateInfo().toString().equals(rebuilt.getEventStateInfo().toString());
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  applies one inserted (<delta> 1) or deleted (<delta> -1) row
+    private void change(int table, int[] row, String[] text, int delta) {
+        if (table == FakebookSnapshot.Users) {
+            long userID = row[FakebookSnapshot.UserID];
+            int month = row[FakebookSnapshot.MonthOfBirth];
+            if (month != FakebookSnapshot.NULL) {
+                TreeMap<Long, UserInfo> users = usersByMonth.get(month);
+                if (users == null) {
+                    users = new TreeMap<Long, UserInfo>();
+                    usersByMonth.put(month, users);
+                }
+                if (delta > 0) {
+                    users.put(userID, new UserInfo(names, userID, text[FakebookSnapshot.FirstName], text[FakebookSnapshot.LastName]));
+                }
+                else {
+                    users.remove(userID);
+                    if (users.isEmpty()) {
+                        usersByMonth.remove(month);
+                    }
+                }
+                monthTotal += delta;
+            }
+            String name = text[FakebookSnapshot.FirstName];
+            if (name != null) {
+                int before = get(nameCounts, name);
+                int after = before + delta;
+                put(nameCounts, name, after);
+                move(namesByCount, name, before, after);
+                if (before == 0 || after == 0) {
+                    move(namesByLength, name, after == 0 ? name.length() : 0, after == 0 ? 0 : name.length());
+                }
+            }
+        }
+        else if (table == FakebookSnapshot.Cities) {
+            int city = row[FakebookSnapshot.CityID];
+            String state = text[FakebookSnapshot.StateName];
+            if (delta > 0) {
+                cityStates.put(city, state);
+            }
+            else {
+                cityStates.remove(city);
+            }
+            addStateEvents(state, delta * get(cityEvents, city));
+        }
+        else if (table == FakebookSnapshot.Events) {
+            int city = row[FakebookSnapshot.EventCityID];
+            if (city == FakebookSnapshot.NULL) {
+                return;
+            }
+            put(cityEvents, city, get(cityEvents, city) + delta);
+            if (cityStates.containsKey(city)) {
+                addStateEvents(cityStates.get(city), delta);
+            }
+        }
+    }
+
+    // EFFECTS:  adds <delta> events to <state> (which may be null, a group of its own)
+    private void addStateEvents(String state, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int before = get(stateEvents, state);
+        put(stateEvents, state, before + delta);
+        move(statesByCount, state, before, before + delta);
+    }
+
+    // EFFECTS:  moves <value> from the bucket of <before> to that of <after> in <buckets>,
+    //           where 0 stands for no bucket, and drops buckets that become empty
+    private static void move(TreeMap<Integer, TreeSet<String>> buckets, String value, int before, int after) {
+        if (before != 0) {
+            TreeSet<String> bucket = buckets.get(before);
+            bucket.remove(value);
+            if (bucket.isEmpty()) {
+                buckets.remove(before);
+            }
+        }
+        if (after != 0) {
+            TreeSet<String> bucket = buckets.get(after);
+            if (bucket == null) {
+                bucket = new TreeSet<String>(NullsLast);
+                buckets.put(after, bucket);
+            }
+            bucket.add(value);
+        }
+    }
+
+    private static <K> int get(HashMap<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        return count == null ? 0 : count;
+    }
+
+    private static <K> void put(HashMap<K, Integer> counts, K key, int count) {
+        if (count == 0) {
+            counts.remove(key);
+        }
+        else {
+            counts.put(key, count);
+        }
+    }
+
+    // Member Variables
+    private final TreeMap<Integer, TreeMap<Long, UserInfo>> usersByMonth;  // month -> users by ID
+    private final FakebookNameDictionary names;                             // of the users
+    private long monthTotal;                                                // users with a month
+    private final HashMap<String, Integer> nameCounts;                      // first name -> users
+    private final TreeMap<Integer, TreeSet<String>> namesByLength;          // length -> first names
+    private final TreeMap<Integer, TreeSet<String>> namesByCount;           // users -> first names
+    private final HashMap<Integer, String> cityStates;                      // city ID -> state
+    private final HashMap<Integer, Integer> cityEvents;                     // city ID -> events
+    private final HashMap<String, Integer> stateEvents;                     // state -> events
+    private final TreeMap<Integer, TreeSet<String>> statesByCount;          // events -> states
+
+    // orders strings naturally with null last, as Query 7 reports a NULL state
+    private static final Comparator<String> NullsLast = new Comparator<String>() {
+        public int compare(String a, String b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : (a == null ? 1 : -1);
+            }
+            return a.compareTo(b);
+        }
+    };
+}
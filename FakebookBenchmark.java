@@ -0,0 +1,298 @@
+package project2;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+    The FakebookBenchmark class is a JMH suite for the Java side of the project: building and
+    printing query results, and answering queries from an in-memory snapshot. It needs no
+    database; all data is synthetic and generated from a fixed seed, at several sizes, so
+    that runs are comparable from one build to the next. It is not part of the regular
+    build; "make benchmark" compiles and runs it against the JMH jars in $(JMH).
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class FakebookBenchmark {
+    /*
+        Results holds query results with <size> entries, built directly rather than by
+        running queries, for the rendering benchmarks.
+    */
+    @State(Scope.Benchmark)
+    public static class Results {
+        @Param({ "10", "1000", "10000" })
+        public int size;
+
+        FakebookArrayList<UserInfo> users;
+        FakebookArrayList<TaggedPhotoInfo> photos;
+        FakebookArrayList<MatchPair> matches;
+        FakebookArrayList<UsersPair> pairs;
+        TaggedPhotoInfo photo;
+        MatchPair match;
+        UsersPair pair;
+        BirthMonthInfo months;
+        FakebookOracle printer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            users = new FakebookArrayList<UserInfo>(", ");
+            photos = new FakebookArrayList<TaggedPhotoInfo>("\n");
+            matches = new FakebookArrayList<MatchPair>("\n");
+            pairs = new FakebookArrayList<UsersPair>("\n");
+            photo = new TaggedPhotoInfo(photoInfo(0));
+            match = new MatchPair(userInfo(0), 1990, userInfo(1), 1991);
+            pair = new UsersPair(userInfo(0), userInfo(1));
+            months = new BirthMonthInfo(size * 2L, 1, 12);
+            for (int idx = 0; idx < size; idx++) {
+                users.add(userInfo(idx));
+                photo.addTaggedUser(userInfo(idx));
+                match.addSharedPhoto(photoInfo(idx));
+                pair.addSharedFriend(userInfo(idx));
+                months.addMostPopularBirthMonthUser(userInfo(idx));
+                months.addLeastPopularBirthMonthUser(userInfo(size + idx));
+
+                TaggedPhotoInfo tagged = new TaggedPhotoInfo(photoInfo(idx));
+                MatchPair matched = new MatchPair(userInfo(idx), 1990, userInfo(idx + 1), 1991);
+                UsersPair suggested = new UsersPair(userInfo(idx), userInfo(idx + 1));
+                for (int other = 0; other < 3; other++) {
+                    tagged.addTaggedUser(userInfo(idx + other));
+                    matched.addSharedPhoto(photoInfo(idx + other));
+                    suggested.addSharedFriend(userInfo(idx + other + 2));
+                }
+                photos.add(tagged);
+                matches.add(matched);
+                pairs.add(suggested);
+            }
+            printer = new InMemoryFakebookOracle(new FakebookSnapshot.Builder().build());
+        }
+    }
+
+    /*
+        Engine holds a synthetic snapshot of <users> users and the in-memory engine built
+        over it, for the query kernel benchmarks.
+    */
+    @State(Scope.Benchmark)
+    public static class Engine {
+        @Param({ "1000", "10000", "100000" })
+        public int users;
+
+        FakebookSnapshot snapshot;
+        InMemoryFakebookOracle oracle;
+        FakebookFriendRecommender recommender;
+        long userID;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            snapshot = generate(users, Seed);
+            oracle = new InMemoryFakebookOracle(snapshot);
+            recommender = new FakebookFriendRecommender(FakebookFriendGraph.fromSnapshot(snapshot));
+            userID = users / 2;
+        }
+    }
+
+    // [Rendering Benchmarks]
+    @Benchmark
+    public String arrayListToString(Results results) {
+        return results.users.toString();
+    }
+
+    @Benchmark
+    public String taggedPhotoInfoToString(Results results) {
+        return results.photo.toString();
+    }
+
+    @Benchmark
+    public String matchPairToString(Results results) {
+        return results.match.toString();
+    }
+
+    @Benchmark
+    public String usersPairToString(Results results) {
+        return results.pair.toString();
+    }
+
+    @Benchmark
+    public String birthMonthInfoToString(Results results) {
+        return results.months.toString();
+    }
+
+    @Benchmark
+    public long printQuery2(Results results) throws IOException {
+        CountingWriter out = new CountingWriter();
+        results.printer.printQuery2(out, results.users);
+        return out.chars;
+    }
+
+    @Benchmark
+    public long printQuery4(Results results) throws IOException {
+        CountingWriter out = new CountingWriter();
+        results.printer.printQuery4(out, results.photos);
+        return out.chars;
+    }
+
+    @Benchmark
+    public long printQuery5(Results results) throws IOException {
+        CountingWriter out = new CountingWriter();
+        results.printer.printQuery5(out, results.matches);
+        return out.chars;
+    }
+
+    @Benchmark
+    public long printQuery6(Results results) throws IOException {
+        CountingWriter out = new CountingWriter();
+        results.printer.printQuery6(out, results.pairs);
+        return out.chars;
+    }
+
+    // [Kernel Benchmarks]
+    @Benchmark
+    public InMemoryFakebookOracle buildEngine(Engine engine) {
+        return new InMemoryFakebookOracle(engine.snapshot);
+    }
+
+    @Benchmark
+    public FakebookFriendGraph buildFriendGraph(Engine engine) {
+        return FakebookFriendGraph.fromSnapshot(engine.snapshot);
+    }
+
+    @Benchmark
+    public FakebookPairHeap recommend(Engine engine) {
+        return engine.recommender.recommend(5);
+    }
+
+    @Benchmark
+    public BirthMonthInfo query0(Engine engine) throws SQLException {
+        return engine.oracle.findMonthOfBirthInfo();
+    }
+
+    @Benchmark
+    public FirstNameInfo query1(Engine engine) throws SQLException {
+        return engine.oracle.findNameInfo();
+    }
+
+    @Benchmark
+    public FakebookArrayList<UserInfo> query2(Engine engine) throws SQLException {
+        return engine.oracle.lonelyUsers();
+    }
+
+    @Benchmark
+    public FakebookArrayList<UserInfo> query3(Engine engine) throws SQLException {
+        return engine.oracle.liveAwayFromHome();
+    }
+
+    @Benchmark
+    public FakebookArrayList<TaggedPhotoInfo> query4(Engine engine) throws SQLException {
+        return engine.oracle.findPhotosWithMostTags(5);
+    }
+
+    @Benchmark
+    public FakebookArrayList<MatchPair> query5(Engine engine) throws SQLException {
+        return engine.oracle.matchMaker(5, 2);
+    }
+
+    @Benchmark
+    public FakebookArrayList<UsersPair> query6(Engine engine) throws SQLException {
+        return engine.oracle.suggestFriends(5);
+    }
+
+    @Benchmark
+    public EventStateInfo query7(Engine engine) throws SQLException {
+        return engine.oracle.findEventStates();
+    }
+
+    @Benchmark
+    public AgeInfo query8(Engine engine) throws SQLException {
+        return engine.oracle.findAgeInfo(engine.userID);
+    }
+
+    @Benchmark
+    public FakebookArrayList<SiblingInfo> query9(Engine engine) throws SQLException {
+        return engine.oracle.findPotentialSiblings();
+    }
+
+    // [Synthetic Data Function]
+    // EFFECTS:  returns a snapshot of <users> users with about five friends each, generated
+    //           by FakebookDataGenerator; the same <seed> always gives the same snapshot
+    static FakebookSnapshot generate(int users, long seed) {
+        FakebookDataGenerator generator = new FakebookDataGenerator(seed, users);
+        generator.setAverageFriends(5.0);
+        FakebookDataGenerator.SnapshotSink sink = new FakebookDataGenerator.SnapshotSink();
+        try {
+            generator.generate(sink);
+        }
+        catch (IOException | SQLException e) {
+            throw new IllegalStateException(e);         // a SnapshotSink does no I/O
+        }
+        return sink.getSnapshot();
+    }
+
+    // [Helper Functions]
+    private static UserInfo userInfo(int idx) {
+        return new UserInfo(Names, idx + 1, name(idx % 500), name(500 + idx));
+    }
+
+    private static PhotoInfo photoInfo(int idx) {
+        return new PhotoInfo(idx + 1, idx / AlbumPhotos + 1, "http://fakebook.com/photo/" + (idx + 1),
+            "Album" + (idx / AlbumPhotos + 1));
+    }
+
+    // EFFECTS:  returns a capitalized name of 3 to 10 letters made up from <idx>
+    private static String name(int idx) {
+        StringBuilder name = new StringBuilder();
+        name.append((char)('A' + idx % 26));
+        int rest = idx / 26;
+        for (int length = 2 + idx % 8; length > 0; length--) {
+            name.append((char)('a' + rest % 26));
+            rest = rest / 26 + length;
+        }
+        return name.toString();
+    }
+
+    /*
+        A CountingWriter discards what is written to it and counts the characters, so that
+        the printing benchmarks measure formatting rather than I/O.
+    */
+    static final class CountingWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long chars;
+    }
+
+    // Member Variables
+    private static final long Seed = 20240601L;
+    private static final int AlbumPhotos = 5;           // photos per album
+    private static final FakebookNameDictionary Names = new FakebookNameDictionary();
+}
@@ -0,0 +1,383 @@
+package project2;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+    The FakebookBitmap class is a compressed set of int values, such as user IDs, laid out
+    like a Roaring bitmap: values are grouped by their high 16 bits, and each group keeps
+    its low 16 bits in a container that is either a sorted array (up to ArrayLimit values)
+    or a bitmap of 65536 bits, whichever is smaller. Sparse and dense ranges of IDs both
+    stay compact, and and() and andNot() work a container at a time, word by word where
+    both containers are bitmaps. Values are kept and listed in signed order.
+*/
+final class FakebookBitmap {
+    // [Constructor]
+    // EFFECTS:  creates an empty bitmap
+    public FakebookBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    // [Update Functions]
+    // MODIFIES: this
+    // EFFECTS:  add or remove <value>, and return whether the bitmap changed
+    public boolean add(int value) {
+        int stored = value ^ Integer.MIN_VALUE;
+        int idx = find((char)(stored >>> 16));
+        if (idx < 0) {
+            idx = -idx - 1;
+            insert(idx, (char)(stored >>> 16), new Container());
+        }
+        return containers[idx].add((char)stored);
+    }
+
+    public boolean remove(int value) {
+        int stored = value ^ Integer.MIN_VALUE;
+        int idx = find((char)(stored >>> 16));
+        if (idx < 0 || !containers[idx].remove((char)stored)) {
+            return false;
+        }
+        if (containers[idx].cardinality == 0) {
+            System.arraycopy(keys, idx + 1, keys, idx, size - idx - 1);
+            System.arraycopy(containers, idx + 1, containers, idx, size - idx - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    // [Lookup Functions]
+    // EFFECTS:  return whether <value> is in the bitmap, and how many values it holds
+    public boolean contains(int value) {
+        int stored = value ^ Integer.MIN_VALUE;
+        int idx = find((char)(stored >>> 16));
+        return idx >= 0 && containers[idx].contains((char)stored);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int idx = 0; idx < size; idx++) {
+            cardinality += containers[idx].cardinality;
+        }
+        return cardinality;
+    }
+
+    // EFFECTS:  returns the values in ascending order
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int count = 0;
+        for (int idx = 0; idx < size; idx++) {
+            count = containers[idx].copyTo(keys[idx] << 16, values, count);
+        }
+        return values;
+    }
+
+    // [Set Functions]
+    // EFFECTS:  return a new bitmap of the values in both this and <other>, and of those in
+    //           this but not in <other>
+    public FakebookBitmap and(FakebookBitmap other) {
+        FakebookBitmap result = new FakebookBitmap();
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            }
+            else if (keys[i] > other.keys[j]) {
+                j++;
+            }
+            else {
+                Container both = containers[i].and(other.containers[j]);
+                if (both.cardinality > 0) {
+                    result.insert(result.size, keys[i], both);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public FakebookBitmap andNot(FakebookBitmap other) {
+        FakebookBitmap result = new FakebookBitmap();
+        for (int i = 0, j = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container rest = j < other.size && other.keys[j] == keys[i]
+                ? containers[i].andNot(other.containers[j]) : containers[i].copy();
+            if (rest.cardinality > 0) {
+                result.insert(result.size, keys[i], rest);
+            }
+        }
+        return result;
+    }
+
+    // [Serialization Functions]
+    // MODIFIES: <out>
+    // EFFECTS:  writes the bitmap to <out>, every container in its own form
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int idx = 0; idx < size; idx++) {
+            Container container = containers[idx];
+            out.writeChar(keys[idx]);
+            out.writeInt(container.cardinality);
+            if (container.words == null) {
+                for (int at = 0; at < container.cardinality; at++) {
+                    out.writeChar(container.values[at]);
+                }
+            }
+            else {
+                for (long word : container.words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    // MODIFIES: <in>
+    // EFFECTS:  reads a bitmap written by writeTo from <in>; throws an IOException if
+    //           what is read is not a valid bitmap
+    public static FakebookBitmap readFrom(DataInputStream in) throws IOException {
+        FakebookBitmap bitmap = new FakebookBitmap();
+        int count = in.readInt();
+        if (count < 0 || count > 1 << 16) {
+            throw new IOException("Damaged bitmap: " + count + " containers");
+        }
+        for (int idx = 0; idx < count; idx++) {
+            char key = in.readChar();
+            int cardinality = in.readInt();
+            if (cardinality <= 0 || cardinality > 1 << 16 || (idx > 0 && key <= bitmap.keys[idx - 1])) {
+                throw new IOException("Damaged bitmap container");
+            }
+            Container container = new Container();
+            if (cardinality <= ArrayLimit) {
+                container.values = new char[cardinality];
+                for (int at = 0; at < cardinality; at++) {
+                    container.values[at] = in.readChar();
+                }
+            }
+            else {
+                container.values = null;
+                container.words = new long[Words];
+                int bits = 0;
+                for (int at = 0; at < Words; at++) {
+                    container.words[at] = in.readLong();
+                    bits += Long.bitCount(container.words[at]);
+                }
+                if (bits != cardinality) {
+                    throw new IOException("Damaged bitmap container");
+                }
+            }
+            container.cardinality = cardinality;
+            bitmap.insert(idx, key, container);
+        }
+        return bitmap;
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns the index of the container for <key>, or -(insertion point) - 1
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS:  puts <container> for <key> at index <idx>
+    private void insert(int idx, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, idx, keys, idx + 1, size - idx);
+        System.arraycopy(containers, idx, containers, idx + 1, size - idx);
+        keys[idx] = key;
+        containers[idx] = container;
+        size++;
+    }
+
+    /*
+        A Container holds the low 16 bits of the values sharing one high 16 bits, either as
+        the first <cardinality> entries of a sorted array (words is null) or as a bitmap of
+        Words longs (values is null). It turns into a bitmap when it grows past ArrayLimit
+        values, and back into an array when it shrinks to ArrayLimit.
+    */
+    private static final class Container {
+        Container() {
+            values = new char[4];
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at >= 0) {
+                return false;
+            }
+            if (cardinality == ArrayLimit) {
+                toWords();
+                return add(low);
+            }
+            at = -at - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ArrayLimit, cardinality * 2));
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                if (--cardinality == ArrayLimit) {
+                    toValues();
+                }
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        Container and(Container other) {
+            Container result = new Container();
+            if (words != null && other.words != null) {
+                result.values = null;
+                result.words = new long[Words];
+                for (int at = 0; at < Words; at++) {
+                    result.words[at] = words[at] & other.words[at];
+                    result.cardinality += Long.bitCount(result.words[at]);
+                }
+                if (result.cardinality <= ArrayLimit) {
+                    result.toValues();
+                }
+                return result;
+            }
+            // walk the array side, which holds at most ArrayLimit values
+            Container array = words == null ? this : other;
+            Container probe = array == this ? other : this;
+            result.values = new char[array.cardinality];
+            for (int at = 0; at < array.cardinality; at++) {
+                if (probe.contains(array.values[at])) {
+                    result.values[result.cardinality++] = array.values[at];
+                }
+            }
+            return result;
+        }
+
+        Container andNot(Container other) {
+            Container result = new Container();
+            if (words != null) {
+                result.values = null;
+                result.words = words.clone();
+                result.cardinality = cardinality;
+                if (other.words != null) {
+                    result.cardinality = 0;
+                    for (int at = 0; at < Words; at++) {
+                        result.words[at] &= ~other.words[at];
+                        result.cardinality += Long.bitCount(result.words[at]);
+                    }
+                }
+                else {
+                    for (int at = 0; at < other.cardinality; at++) {
+                        char low = other.values[at];
+                        if ((result.words[low >>> 6] & (1L << low)) != 0) {
+                            result.words[low >>> 6] &= ~(1L << low);
+                            result.cardinality--;
+                        }
+                    }
+                }
+                if (result.cardinality <= ArrayLimit) {
+                    result.toValues();
+                }
+                return result;
+            }
+            result.values = new char[Math.max(1, cardinality)];
+            for (int at = 0; at < cardinality; at++) {
+                if (!other.contains(values[at])) {
+                    result.values[result.cardinality++] = values[at];
+                }
+            }
+            return result;
+        }
+
+        Container copy() {
+            Container result = new Container();
+            result.values = values == null ? null : Arrays.copyOf(values, Math.max(1, cardinality));
+            result.words = words == null ? null : words.clone();
+            result.cardinality = cardinality;
+            return result;
+        }
+
+        // EFFECTS:  writes the values of this container, with <high> as their high bits, to
+        //           <out> from <count> on, and returns the count after them
+        int copyTo(int high, int[] out, int count) {
+            if (words == null) {
+                for (int at = 0; at < cardinality; at++) {
+                    out[count++] = (high | values[at]) ^ Integer.MIN_VALUE;
+                }
+                return count;
+            }
+            for (int at = 0; at < Words; at++) {
+                for (long word = words[at]; word != 0; word &= word - 1) {
+                    out[count++] = (high | (at << 6) | Long.numberOfTrailingZeros(word)) ^ Integer.MIN_VALUE;
+                }
+            }
+            return count;
+        }
+
+        private void toWords() {
+            words = new long[Words];
+            for (int at = 0; at < cardinality; at++) {
+                words[values[at] >>> 6] |= 1L << values[at];
+            }
+            values = null;
+        }
+
+        private void toValues() {
+            values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int at = 0; at < Words; at++) {
+                for (long word = words[at]; word != 0; word &= word - 1) {
+                    values[count++] = (char)((at << 6) | Long.numberOfTrailingZeros(word));
+                }
+            }
+            words = null;
+        }
+
+        char[] values;                                  // sorted low bits, or null
+        long[] words;                                   // bitmap of low bits, or null
+        int cardinality;
+    }
+
+    // Member Variables
+    private char[] keys;                                // high 16 bits (of value ^ MIN_VALUE)
+    private Container[] containers;
+    private int size;
+
+    private static final int ArrayLimit = 4096;         // largest array container
+    private static final int Words = 1 << 10;           // longs in a bitmap container
+}
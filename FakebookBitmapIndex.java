@@ -0,0 +1,244 @@
+package project2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+    The FakebookBitmapIndex class keeps FakebookBitmap sets of user IDs that turn Queries 2
+    and 3 into set operations: the users, those with a friend, those with a current city,
+    those with a hometown, and those whose current city differs from their hometown. Query 2
+    is then the users and-not those with a friend, and Query 3 the users and those away
+    from home, listed in ID order.
+
+    Like FakebookAggregates, the index is kept up to date through insert() and delete(), one
+    row of Users, Friends, User_Current_Cities, or User_Hometown_Cities at a time, laid out
+    as in FakebookSnapshot; it also counts the friends of every user and remembers their
+    cities, so that a change only touches the bitmaps of the users in that row. write()
+    saves all of it to a file, which can be kept next to a snapshot file (see fileFor),
+    along with the checksum of that snapshot file; read() loads it back, ready for further
+    changes, but only for a snapshot file with the same checksum.
+*/
+final class FakebookBitmapIndex {
+    // [Constructor]
+    // EFFECTS:  creates the index of empty tables
+    public FakebookBitmapIndex() {
+        users = new FakebookBitmap();
+        hasFriend = new FakebookBitmap();
+        hasCurrentCity = new FakebookBitmap();
+        hasHometown = new FakebookBitmap();
+        awayFromHome = new FakebookBitmap();
+        friendCounts = new FakebookIntIntMap(16);
+        currentCities = new FakebookIntIntMap(16);
+        hometowns = new FakebookIntIntMap(16);
+    }
+
+    // [Rebuild Function]
+    // EFFECTS:  returns the index of every row in <snapshot>
+    public static FakebookBitmapIndex fromSnapshot(FakebookSnapshot snapshot) {
+        FakebookBitmapIndex index = new FakebookBitmapIndex();
+        int[] row = new int[8];
+        for (int table : Tables) {
+            FakebookTable data = snapshot.getTable(table);
+            for (int at = 0; at < data.getRowCount(); at++) {
+                for (int column = 0; column < data.getColumnCount(); column++) {
+                    row[column] = data.get(at, column);
+                }
+                index.insert(table, row, null);
+            }
+        }
+        return index;
+    }
+
+    // [Change Feed Functions]
+    // REQUIRES: for insert, no row with the same key (User_ID, or both IDs for Friends) is
+    //           present; for delete, <row> holds the row as it was inserted. <text> is not
+    //           used, as no indexed column holds text
+    // MODIFIES: this
+    // EFFECTS:  adds <row> of <table> to, or removes it from, the index
+    public synchronized void insert(int table, int[] row, String[] text) {
+        change(table, row, 1);
+    }
+
+    public synchronized void delete(int table, int[] row, String[] text) {
+        change(table, row, -1);
+    }
+
+    // [Query Functions]
+    // EFFECTS:  return the IDs of the users without friends (Query 2), and of the users
+    //           whose current city and hometown are listed and differ (Query 3), ascending
+    public synchronized int[] getLonelyUsers() {
+        return users.andNot(hasFriend).toArray();
+    }
+
+    public synchronized int[] getUsersAwayFromHome() {
+        return users.and(awayFromHome).toArray();
+    }
+
+    // [Verify Function]
+    // EFFECTS:  returns true if the bitmaps kept here are the same as those of a full
+    //           rebuild from <snapshot>
+    public boolean verify(FakebookSnapshot snapshot) {
+        FakebookBitmapIndex rebuilt = fromSnapshot(snapshot);
+        synchronized (this) {
+            return Arrays.equals(users.toArray(), rebuilt.users.toArray())
+                && Arrays.equals(hasFriend.toArray(), rebuilt.hasFriend.toArray())
+                && Arrays.equals(hasCurrentCity.toArray(), rebuilt.hasCurrentCity.toArray())
+                && Arrays.equals(hasHometown.toArray(), rebuilt.hasHometown.toArray())
+                && Arrays.equals(awayFromHome.toArray(), rebuilt.awayFromHome.toArray());
+        }
+    }
+
+    // [File Functions]
+    // EFFECTS:  returns the file in which the index of snapshot file <snapshot> is kept
+    public static File fileFor(File snapshot) {
+        return new File(snapshot.getPath() + ".bitmaps");
+    }
+
+    // MODIFIES: <file>
+    // EFFECTS:  writes the index to <file>, replacing it if it exists, as the index of the
+    //           snapshot file whose FakebookSnapshotFile.checksum is <snapshotChecksum>
+    public synchronized void write(File file, int snapshotChecksum) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file)), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(Magic);
+            out.writeInt(Version);
+            out.writeInt(snapshotChecksum);
+            users.writeTo(out);
+            hasFriend.writeTo(out);
+            hasCurrentCity.writeTo(out);
+            hasHometown.writeTo(out);
+            awayFromHome.writeTo(out);
+
+            // the friend counts and cities of the users in the bitmaps, in their order
+            for (int userID : hasFriend.toArray()) {
+                out.writeInt(friendCounts.get(userID, 0));
+            }
+            for (int userID : hasCurrentCity.toArray()) {
+                out.writeInt(currentCities.get(userID, FakebookSnapshot.NULL));
+            }
+            for (int userID : hasHometown.toArray()) {
+                out.writeInt(hometowns.get(userID, FakebookSnapshot.NULL));
+            }
+            out.writeInt((int)checked.getChecksum().getValue());
+        }
+    }
+
+    // EFFECTS:  reads the index written to <file>; throws an IOException if <file> is not
+    //           an index of this version, is damaged, or was not written for the snapshot
+    //           file whose checksum is <snapshotChecksum>
+    public static FakebookBitmapIndex read(File file, int snapshotChecksum) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+            new BufferedInputStream(new FileInputStream(file)), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != Magic) {
+                throw new IOException(file + " is not a Fakebook bitmap index");
+            }
+            int version = in.readInt();
+            if (version != Version) {
+                throw new IOException(file + " has bitmap index format " + version + ", expected " + Version);
+            }
+            if (in.readInt() != snapshotChecksum) {
+                throw new IOException(file + " is the index of another snapshot");
+            }
+            FakebookBitmapIndex index = new FakebookBitmapIndex();
+            index.users = FakebookBitmap.readFrom(in);
+            index.hasFriend = FakebookBitmap.readFrom(in);
+            index.hasCurrentCity = FakebookBitmap.readFrom(in);
+            index.hasHometown = FakebookBitmap.readFrom(in);
+            index.awayFromHome = FakebookBitmap.readFrom(in);
+
+            for (int userID : index.hasFriend.toArray()) {
+                index.friendCounts.put(userID, in.readInt());
+            }
+            for (int userID : index.hasCurrentCity.toArray()) {
+                index.currentCities.put(userID, in.readInt());
+            }
+            for (int userID : index.hasHometown.toArray()) {
+                index.hometowns.put(userID, in.readInt());
+            }
+            int checksum = (int)checked.getChecksum().getValue();
+            if (in.readInt() != checksum) {
+                throw new IOException(file + " is damaged");
+            }
+            return index;
+        }
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  applies one inserted (<delta> 1) or deleted (<delta> -1) row
+    private void change(int table, int[] row, int delta) {
+        if (table == FakebookSnapshot.Users) {
+            if (delta > 0) {
+                users.add(row[FakebookSnapshot.UserID]);
+            }
+            else {
+                users.remove(row[FakebookSnapshot.UserID]);
+            }
+        }
+        else if (table == FakebookSnapshot.Friends) {
+            int[] pair = { row[FakebookSnapshot.User1ID], row[FakebookSnapshot.User2ID] };
+            for (int userID : pair) {
+                if (userID == FakebookSnapshot.NULL) {
+                    continue;
+                }
+                int count = friendCounts.add(userID, delta);
+                if (count > 0) {
+                    hasFriend.add(userID);
+                }
+                else {
+                    hasFriend.remove(userID);
+                }
+            }
+        }
+        else if (table == FakebookSnapshot.CurrentCities || table == FakebookSnapshot.HometownCities) {
+            boolean current = table == FakebookSnapshot.CurrentCities;
+            int userID = row[FakebookSnapshot.UserID];
+            int city = delta > 0 ? row[current ? FakebookSnapshot.CurrentCityID : FakebookSnapshot.HometownCityID]
+                : FakebookSnapshot.NULL;
+            (current ? currentCities : hometowns).put(userID, city);
+            FakebookBitmap listed = current ? hasCurrentCity : hasHometown;
+            if (city != FakebookSnapshot.NULL) {
+                listed.add(userID);
+            }
+            else {
+                listed.remove(userID);
+            }
+
+            int currentCity = currentCities.get(userID, FakebookSnapshot.NULL);
+            int hometown = hometowns.get(userID, FakebookSnapshot.NULL);
+            if (currentCity != FakebookSnapshot.NULL && hometown != FakebookSnapshot.NULL && currentCity != hometown) {
+                awayFromHome.add(userID);
+            }
+            else {
+                awayFromHome.remove(userID);
+            }
+        }
+    }
+
+    // Member Variables
+    private FakebookBitmap users;
+    private FakebookBitmap hasFriend;
+    private FakebookBitmap hasCurrentCity;
+    private FakebookBitmap hasHometown;
+    private FakebookBitmap awayFromHome;                // current city and hometown differ
+    private final FakebookIntIntMap friendCounts;       // user ID -> Friends rows naming the user
+    private final FakebookIntIntMap currentCities;      // user ID -> current city, NULL if none
+    private final FakebookIntIntMap hometowns;          // user ID -> hometown, NULL if none
+
+    public static final int Version = 2;                // bump whenever the layout changes
+
+    private static final int[] Tables = { FakebookSnapshot.Users, FakebookSnapshot.Friends,
+        FakebookSnapshot.CurrentCities, FakebookSnapshot.HometownCities };
+    private static final int Magic = 0x46424249;        // "FBBI"
+}
@@ -0,0 +1,411 @@
+package project2;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    The FakebookConnectionPool class maintains a bounded set of JDBC connections to a single
+    database URL. FakebookOracle implementations borrow a connection for the duration of one
+    query and hand it back by calling close() on it, so several queries can run at the same
+    time without paying connection setup on every call. Connections that sat idle for a while
+    are validated before they are handed out again, and connections that sat idle for too long
+    are closed. Each physical connection keeps its own FakebookStatementCache, so statements
+    prepared through a borrowed connection are reused by later borrowers.
+*/
+public final class FakebookConnectionPool implements AutoCloseable {
+    // [Constructor]
+    // REQUIRES: <url> is a valid JDBC URL whose driver is on the classpath
+    //           <maxSize> is positive
+    public FakebookConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, null, maxSize);
+    }
+
+    // [Single Connection Pool Factory]
+    // REQUIRES: <connection> is a valid JDBC connection
+    // EFFECTS:  returns a pool that lends out <connection> to one borrower at a time; the
+    //           connection is never validated, evicted, or closed by the pool, since its
+    //           lifetime belongs to the caller
+    public static FakebookConnectionPool wrap(Connection connection) {
+        return new FakebookConnectionPool(null, null, null, connection, 1);
+    }
+
+    private FakebookConnectionPool(String url, String user, String password, Connection fixed, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.fixed = fixed;
+        this.maxSize = maxSize;
+        permits = new Semaphore(maxSize, true);
+        idle = new ArrayDeque<PooledConnection>();
+        statementHits = new AtomicLong();
+        statementMisses = new AtomicLong();
+    }
+
+    // [Configuration Functions]
+    // MODIFIES: this
+    // EFFECTS:  set how long borrow() waits for a free connection, how long a connection may
+    //           sit idle before it is closed, and how long it may sit idle before it has to be
+    //           validated again (all in milliseconds)
+    public void setBorrowTimeout(long millis) {
+        borrowTimeoutMillis = millis;
+    }
+
+    public void setIdleTimeout(long millis) {
+        idleTimeoutMillis = millis;
+    }
+
+    public void setValidationInterval(long millis) {
+        validationIntervalMillis = millis;
+    }
+
+    // EFFECTS:  sets how many prepared statements each connection opened from now on keeps
+    //           cached; 0 disables statement caching
+    public void setStatementCacheSize(int size) {
+        statementCacheSize = size;
+    }
+
+    // [Borrow Function]
+    // MODIFIES: this
+    // EFFECTS:  returns a connection for the exclusive use of the caller until the caller
+    //           closes it; waits at most the borrow timeout for one to become available and
+    //           throws a SQLTimeoutException if none does
+    public Connection borrow() throws SQLException {
+        long begin = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        recordWait(System.nanoTime() - begin, acquired);
+
+        if (!acquired) {
+            throw new SQLTimeoutException(String.format(
+                "Timed out after %d ms waiting for one of %d pooled connections", borrowTimeoutMillis, maxSize));
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new Lease(pooled));
+        }
+        catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+        catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // [Evict Idle Connections Function]
+    // MODIFIES: this
+    // EFFECTS:  closes every idle connection that has been idle longer than the idle timeout
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledConnection expired;
+            synchronized (this) {
+                expired = idle.peekLast();
+                if (expired == null || fixed != null || now - expired.lastUsed < idleTimeoutMillis) {
+                    return;
+                }
+                idle.pollLast();
+                open--;
+                evicted++;
+            }
+            closeQuietly(expired);
+        }
+    }
+
+    // [Close Function]
+    // MODIFIES: this
+    // EFFECTS:  closes all idle connections; connections still on loan are closed when they
+    //           are returned
+    public void close() {
+        PooledConnection[] drained;
+        synchronized (this) {
+            closed = true;
+            drained = idle.toArray(new PooledConnection[idle.size()]);
+            open -= drained.length;
+            idle.clear();
+        }
+        for (PooledConnection pooled : drained) {
+            closeQuietly(pooled);
+        }
+    }
+
+    // [Statistics Accessors]
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getOpenCount() {
+        return open;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized long getBorrowCount() {
+        return borrows;
+    }
+
+    public synchronized long getTimeoutCount() {
+        return timeouts;
+    }
+
+    public synchronized long getCreatedCount() {
+        return created;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    public synchronized long getValidationFailureCount() {
+        return validationFailures;
+    }
+
+    public synchronized double getAverageWaitMillis() {
+        long attempts = borrows + timeouts;
+        return attempts == 0 ? 0.0 : totalWaitNanos / 1e6 / attempts;
+    }
+
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    // [FakebookConnectionPool-to-String Converter]
+    // EFFECTS:  returns a one-line summary of the pool's usage statistics
+    public synchronized String toString() {
+        return String.format("Connection pool: %d/%d open, %d idle, %d borrow(s), %d timeout(s), " +
+            "%d created, %d evicted, %d failed validation, wait avg %.3f ms / max %.3f ms, " +
+            "statement cache %d hit(s) / %d miss(es)",
+            open, maxSize, idle.size(), borrows, timeouts, created, evicted, validationFailures,
+            getAverageWaitMillis(), getMaxWaitMillis(), statementHits.get(), statementMisses.get());
+    }
+
+    // [Helper Functions]
+    private synchronized void recordWait(long nanos, boolean acquired) {
+        if (acquired) {
+            borrows++;
+        }
+        else {
+            timeouts++;
+        }
+        totalWaitNanos += nanos;
+        maxWaitNanos = Math.max(maxWaitNanos, nanos);
+    }
+
+    // REQUIRES: the caller holds a permit
+    // EFFECTS:  returns the most recently used idle connection that is still valid, or a new
+    //           connection if there is none
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        evictIdle();
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool has been closed");
+                }
+                pooled = idle.pollFirst();
+                if (pooled == null) {
+                    open++;
+                    created++;
+                }
+            }
+
+            if (pooled == null) {
+                try {
+                    Connection connection = fixed != null ? fixed : DriverManager.getConnection(url, user, password);
+                    return new PooledConnection(connection,
+                        new FakebookStatementCache(statementCacheSize, statementHits, statementMisses));
+                }
+                catch (SQLException e) {
+                    synchronized (this) {
+                        open--;
+                        created--;
+                    }
+                    throw e;
+                }
+            }
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+
+            synchronized (this) {
+                open--;
+                validationFailures++;
+            }
+            closeQuietly(pooled);
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (fixed != null || System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        pooled.statements.reclaim();
+        pooled.lastUsed = System.currentTimeMillis();
+        boolean discard;
+        synchronized (this) {
+            discard = closed;
+            if (discard) {
+                open--;
+            }
+            else {
+                idle.addFirst(pooled);
+            }
+        }
+        if (discard) {
+            closeQuietly(pooled);
+        }
+        permits.release();
+    }
+
+    // EFFECTS:  closes the statements cached for <pooled> and, unless the connection belongs
+    //           to the caller of wrap(), the physical connection itself
+    private void closeQuietly(PooledConnection pooled) {
+        pooled.statements.close();
+        if (fixed != null) {
+            return;
+        }
+        try {
+            pooled.connection.close();
+        }
+        catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /*
+        A PooledConnection is a physical connection owned by the pool, along with its statement
+        cache and the time at which it was last handed back.
+    */
+    private static final class PooledConnection {
+        PooledConnection(Connection connection, FakebookStatementCache statements) {
+            this.connection = connection;
+            this.statements = statements;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        final Connection connection;
+        final FakebookStatementCache statements;
+        long lastUsed;
+    }
+
+    /*
+        A Lease is the handler behind each connection handed out by borrow(). It forwards
+        every call to the underlying physical connection, except that close() returns the
+        connection to the pool instead of closing it and that prepareStatement() goes through
+        the connection's statement cache. A lease can only be returned once.
+    */
+    private final class Lease implements InvocationHandler {
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && method.getParameterTypes().length == 0) {
+                if (pooled != null) {
+                    PooledConnection returned = pooled;
+                    pooled = null;
+                    release(returned);
+                }
+                return null;
+            }
+            if (name.equals("isClosed") && method.getParameterTypes().length == 0) {
+                return pooled == null;
+            }
+            if (name.equals("equals") && method.getParameterTypes().length == 1) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode") && method.getParameterTypes().length == 0) {
+                return System.identityHashCode(proxy);
+            }
+            if (pooled == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.statements.prepare(pooled.connection, (String)args[0],
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            if (name.equals("prepareStatement") && args.length == 3 && method.getParameterTypes()[1] == int.class) {
+                return pooled.statements.prepare(pooled.connection, (String)args[0], (Integer)args[1], (Integer)args[2]);
+            }
+
+            try {
+                return method.invoke(pooled.connection, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private PooledConnection pooled;
+    }
+
+    // Member Variables
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Connection fixed;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final ArrayDeque<PooledConnection> idle;
+    private final AtomicLong statementHits;
+    private final AtomicLong statementMisses;
+
+    private volatile long borrowTimeoutMillis = 30000L;
+    private volatile long idleTimeoutMillis = 60000L;
+    private volatile long validationIntervalMillis = 5000L;
+    private volatile int statementCacheSize = 32;
+    private final int validationTimeoutSeconds = 2;
+
+    private boolean closed;
+    private int open;
+    private long borrows;
+    private long timeouts;
+    private long created;
+    private long evicted;
+    private long validationFailures;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+}
@@ -0,0 +1,701 @@
+package project2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+    The FakebookDataGenerator class generates a synthetic Fakebook dataset of any size: all
+    11 tables, with the columns listed in FakebookSnapshot. The same seed and settings always
+    give the same rows, and every table draws from its own random stream, so changing how
+    one table is generated does not change the others. Rows are streamed to a Sink as they
+    are generated and nothing is kept in memory, so the dataset may be far larger than the
+    heap: bulk-load files, batched JDBC inserts, and in-memory snapshots are provided.
+
+    Friendships follow the Chung-Lu model: user popularity ranks get weights that fall off as
+    a power law, each pair of users is friends with probability proportional to the product
+    of their weights, and the pairs are enumerated with geometric skips, so the time taken is
+    linear in the number of friendships and no pair is generated twice. Ranks are scattered
+    over the user IDs, so popular users are not all at the low IDs.
+*/
+final class FakebookDataGenerator {
+    // [Constructor]
+    // REQUIRES: <users> is positive
+    // EFFECTS:  creates a generator for <users> users with the default settings
+    public FakebookDataGenerator(long seed, int users) {
+        if (users <= 0) {
+            throw new IllegalArgumentException("Need at least one user: " + users);
+        }
+        this.seed = seed;
+        this.users = users;
+    }
+
+    // [Configuration Functions]
+    // MODIFIES: this
+    // EFFECTS:  set the mean number of friends per user, the exponent of the power law that
+    //           the number of friends follows (greater than 2), and the mean number of
+    //           events, albums, and program enrollments per user
+    public void setAverageFriends(double friends) {
+        averageFriends = friends;
+    }
+
+    public void setFriendExponent(double exponent) {
+        if (exponent <= 2.0) {
+            throw new IllegalArgumentException("Power law exponent must exceed 2: " + exponent);
+        }
+        friendExponent = exponent;
+    }
+
+    public void setEventsPerUser(double events) {
+        eventsPerUser = events;
+    }
+
+    public void setAlbumsPerUser(double albums) {
+        albumsPerUser = albums;
+    }
+
+    public void setProgramsPerUser(double programs) {
+        programsPerUser = programs;
+    }
+
+    // [Generate Function]
+    // MODIFIES: <sink>
+    // EFFECTS:  streams every table to <sink>, one table at a time, and returns the number
+    //           of rows generated per table, indexed by the table positions in FakebookSnapshot
+    public long[] generate(Sink sink) throws IOException, SQLException {
+        long[] counts = new long[FakebookSnapshot.TableCount];
+        int cities = Math.max(10, users / 500);
+        int programs = Math.max(10, users / 200);
+        int[] row = new int[8];
+        String[] text = new String[8];
+
+        // Users
+        SplittableRandom random = stream(FakebookSnapshot.Users);
+        sink.begin(FakebookSnapshot.Users);
+        for (int user = 1; user <= users; user++) {
+            Arrays.fill(text, null);
+            row[FakebookSnapshot.UserID] = user;
+            text[FakebookSnapshot.FirstName] = name(FirstSyllables, skewed(random, 2000), 2);
+            text[FakebookSnapshot.LastName] = name(LastSyllables, skewed(random, Math.max(2000, users / 20)), 3);
+            if (random.nextInt(50) == 0) {
+                row[FakebookSnapshot.YearOfBirth] = FakebookSnapshot.NULL;
+                row[FakebookSnapshot.MonthOfBirth] = FakebookSnapshot.NULL;
+                row[FakebookSnapshot.DayOfBirth] = FakebookSnapshot.NULL;
+            }
+            else {
+                int year = 1940 + random.nextInt(70);
+                int month = 1 + random.nextInt(12);
+                row[FakebookSnapshot.YearOfBirth] = year;
+                row[FakebookSnapshot.MonthOfBirth] = month;
+                row[FakebookSnapshot.DayOfBirth] = 1 + random.nextInt(daysIn(year, month));
+            }
+            text[FakebookSnapshot.Gender] = random.nextBoolean() ? "female" : "male";
+            sink.row(FakebookSnapshot.Users, row, text);
+        }
+        counts[FakebookSnapshot.Users] = users;
+        sink.end(FakebookSnapshot.Users);
+
+        // Cities
+        random = stream(FakebookSnapshot.Cities);
+        Arrays.fill(text, null);
+        sink.begin(FakebookSnapshot.Cities);
+        for (int city = 1; city <= cities; city++) {
+            row[FakebookSnapshot.CityID] = city;
+            text[FakebookSnapshot.CityName] = name(LastSyllables, city, 2) + (random.nextBoolean() ? " City" : "ville");
+            text[FakebookSnapshot.StateName] = States[random.nextInt(States.length)];
+            text[FakebookSnapshot.CountryName] = "United States";
+            sink.row(FakebookSnapshot.Cities, row, text);
+        }
+        counts[FakebookSnapshot.Cities] = cities;
+        sink.end(FakebookSnapshot.Cities);
+
+        // Friends
+        Arrays.fill(text, null);
+        sink.begin(FakebookSnapshot.Friends);
+        counts[FakebookSnapshot.Friends] = generateFriends(sink, row, text);
+        sink.end(FakebookSnapshot.Friends);
+
+        // Current and hometown cities: most users have both, and many never moved
+        random = stream(FakebookSnapshot.HometownCities);
+        sink.begin(FakebookSnapshot.HometownCities);
+        for (int user = 1; user <= users; user++) {
+            int hometown = random.nextInt(20) == 0 ? FakebookSnapshot.NULL : 1 + skewed(random, cities);
+            if (hometown != FakebookSnapshot.NULL) {
+                row[FakebookSnapshot.UserID] = user;
+                row[FakebookSnapshot.HometownCityID] = hometown;
+                sink.row(FakebookSnapshot.HometownCities, row, text);
+                counts[FakebookSnapshot.HometownCities]++;
+            }
+        }
+        sink.end(FakebookSnapshot.HometownCities);
+
+        // replaying the hometown stream alongside gives each user's hometown again without
+        // keeping them all
+        SplittableRandom replay = stream(FakebookSnapshot.HometownCities);
+        random = stream(FakebookSnapshot.CurrentCities);
+        sink.begin(FakebookSnapshot.CurrentCities);
+        for (int user = 1; user <= users; user++) {
+            int hometown = replay.nextInt(20) == 0 ? FakebookSnapshot.NULL : 1 + skewed(replay, cities);
+            if (random.nextInt(20) == 0) {
+                continue;
+            }
+            row[FakebookSnapshot.UserID] = user;
+            row[FakebookSnapshot.CurrentCityID] = hometown != FakebookSnapshot.NULL && random.nextInt(5) < 2
+                ? hometown : 1 + skewed(random, cities);
+            sink.row(FakebookSnapshot.CurrentCities, row, text);
+            counts[FakebookSnapshot.CurrentCities]++;
+        }
+        sink.end(FakebookSnapshot.CurrentCities);
+
+        // Programs and Education
+        random = stream(FakebookSnapshot.Programs);
+        sink.begin(FakebookSnapshot.Programs);
+        for (int program = 1; program <= programs; program++) {
+            row[FakebookSnapshot.ProgramID] = program;
+            text[FakebookSnapshot.Institution] = "University of " + name(LastSyllables, random.nextInt(programs), 2);
+            text[FakebookSnapshot.Concentration] = Concentrations[random.nextInt(Concentrations.length)];
+            text[FakebookSnapshot.Degree] = Degrees[random.nextInt(Degrees.length)];
+            sink.row(FakebookSnapshot.Programs, row, text);
+        }
+        counts[FakebookSnapshot.Programs] = programs;
+        sink.end(FakebookSnapshot.Programs);
+
+        random = stream(FakebookSnapshot.Education);
+        Arrays.fill(text, null);
+        sink.begin(FakebookSnapshot.Education);
+        for (int user = 1; user <= users; user++) {
+            int enrollments = poisson(random, programsPerUser);
+            int first = 1 + random.nextInt(programs);
+            for (int idx = 0; idx < Math.min(enrollments, programs); idx++) {
+                row[FakebookSnapshot.UserID] = user;
+                row[FakebookSnapshot.EducationProgramID] = 1 + (first - 1 + idx * 7919) % programs;
+                row[FakebookSnapshot.ProgramYear] = 1960 + random.nextInt(70);
+                sink.row(FakebookSnapshot.Education, row, text);
+                counts[FakebookSnapshot.Education]++;
+            }
+        }
+        sink.end(FakebookSnapshot.Education);
+
+        // Events
+        random = stream(FakebookSnapshot.Events);
+        long events = Math.round(users * eventsPerUser);
+        sink.begin(FakebookSnapshot.Events);
+        for (long event = 1; event <= events; event++) {
+            row[FakebookSnapshot.EventID] = (int)event;
+            row[FakebookSnapshot.EventCreatorID] = 1 + random.nextInt(users);
+            text[FakebookSnapshot.EventName] = EventKinds[random.nextInt(EventKinds.length)] + " " + event;
+            row[FakebookSnapshot.EventCityID] = 1 + skewed(random, cities);
+            sink.row(FakebookSnapshot.Events, row, text);
+        }
+        counts[FakebookSnapshot.Events] = events;
+        sink.end(FakebookSnapshot.Events);
+
+        // Albums, then their photos and tags; photo IDs are handed out album by album, so
+        // the cover photo of an album is the first of its photos
+        random = stream(FakebookSnapshot.Albums);
+        long albums = Math.round(users * albumsPerUser);
+        sink.begin(FakebookSnapshot.Albums);
+        long photo = 1;
+        for (long album = 1; album <= albums; album++) {
+            row[FakebookSnapshot.AlbumID] = (int)album;
+            row[FakebookSnapshot.AlbumOwnerID] = 1 + random.nextInt(users);
+            text[FakebookSnapshot.AlbumName] = "Album " + album;
+            row[FakebookSnapshot.CoverPhotoID] = (int)photo;
+            sink.row(FakebookSnapshot.Albums, row, text);
+            photo += albumPhotos(album);
+        }
+        counts[FakebookSnapshot.Albums] = albums;
+        sink.end(FakebookSnapshot.Albums);
+
+        sink.begin(FakebookSnapshot.Photos);
+        photo = 1;
+        for (long album = 1; album <= albums; album++) {
+            for (int idx = albumPhotos(album); idx > 0; idx--, photo++) {
+                row[FakebookSnapshot.PhotoID] = (int)photo;
+                row[FakebookSnapshot.PhotoAlbumID] = (int)album;
+                text[FakebookSnapshot.PhotoLink] = "http://www.fakebook.com/photo/" + photo;
+                sink.row(FakebookSnapshot.Photos, row, text);
+            }
+        }
+        counts[FakebookSnapshot.Photos] = photo - 1;
+        sink.end(FakebookSnapshot.Photos);
+
+        random = stream(FakebookSnapshot.Tags);
+        Arrays.fill(text, null);
+        int[] tagged = new int[MaxTags];
+        sink.begin(FakebookSnapshot.Tags);
+        for (long tagPhoto = 1; tagPhoto < photo; tagPhoto++) {
+            int tags = Math.min(MaxTags, poisson(random, 2.0));
+            for (int tag = 0; tag < tags; tag++) {
+                tagged[tag] = 1 + skewed(random, users);
+                boolean repeated = false;
+                for (int other = 0; other < tag; other++) {
+                    repeated |= tagged[other] == tagged[tag];
+                }
+                if (!repeated) {
+                    row[FakebookSnapshot.TagPhotoID] = (int)tagPhoto;
+                    row[FakebookSnapshot.TagSubjectID] = tagged[tag];
+                    sink.row(FakebookSnapshot.Tags, row, text);
+                    counts[FakebookSnapshot.Tags]++;
+                }
+            }
+        }
+        sink.end(FakebookSnapshot.Tags);
+        return counts;
+    }
+
+    // [Friendship Function]
+    // MODIFIES: <sink>
+    // EFFECTS:  streams the friendships as (lower ID, higher ID) pairs and returns how many
+    //           there are; see the class comment for the model
+    private long generateFriends(Sink sink, int[] row, String[] text) throws IOException, SQLException {
+        SplittableRandom random = stream(FakebookSnapshot.Friends);
+        double exponent = 1.0 / (friendExponent - 1.0);
+        double sum = 0.0;
+        for (int rank = 0; rank < users; rank++) {
+            sum += Math.pow(rank + 1, -exponent);
+        }
+        double scale = users * averageFriends / sum;        // weight of rank r is scale / (r + 1)^exponent
+        double total = users * averageFriends;              // sum of all weights
+
+        // rank r belongs to user 1 + (r * stride + offset) mod users, a bijection since the
+        // stride is coprime with the number of users
+        long stride = 1 + random.nextInt(users);
+        while (gcd(stride, users) != 1) {
+            stride++;
+        }
+        long offset = random.nextInt(users);
+
+        long friendships = 0L;
+        for (int first = 0; first < users - 1; first++) {
+            double firstWeight = scale * Math.pow(first + 1, -exponent);
+            long second = first + 1;
+            double p = Math.min(firstWeight * scale * Math.pow(second + 1, -exponent) / total, 1.0);
+            while (second < users && p > 0.0) {
+                if (p < 1.0) {
+                    double skip = Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+                    second += (long)Math.min(skip, users);
+                }
+                if (second >= users) {
+                    break;
+                }
+                double q = Math.min(firstWeight * scale * Math.pow(second + 1, -exponent) / total, 1.0);
+                if (random.nextDouble() < q / p) {
+                    int id1 = (int)(1 + (first * stride + offset) % users);
+                    int id2 = (int)(1 + (second * stride + offset) % users);
+                    row[FakebookSnapshot.User1ID] = Math.min(id1, id2);
+                    row[FakebookSnapshot.User2ID] = Math.max(id1, id2);
+                    sink.row(FakebookSnapshot.Friends, row, text);
+                    friendships++;
+                }
+                p = q;
+                second++;
+            }
+        }
+        return friendships;
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns the random stream of <table>
+    private SplittableRandom stream(int table) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + table);
+    }
+
+    // EFFECTS:  returns the number of photos in <album>, the same every time it is asked
+    private int albumPhotos(long album) {
+        return 1 + new SplittableRandom(seed ^ album * 0xC2B2AE3D27D4EB4FL).nextInt(2 * AlbumPhotos - 1);
+    }
+
+    // EFFECTS:  returns a value in [0, <bound>) drawn so that low values are much more likely
+    //           than high ones, e.g. popular names, cities, and users
+    private static int skewed(SplittableRandom random, int bound) {
+        double draw = random.nextDouble();
+        return Math.min(bound - 1, (int)(bound * draw * draw * draw));
+    }
+
+    // EFFECTS:  returns a draw from the Poisson distribution with mean <mean>
+    private static int poisson(SplittableRandom random, double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    // EFFECTS:  returns the capitalized name made of at least <parts> syllables that <idx>
+    //           spells in base <syllables.length>
+    private static String name(String[] syllables, int idx, int parts) {
+        StringBuilder name = new StringBuilder();
+        int rest = idx;
+        for (int part = 0; part < parts || rest > 0; part++) {
+            name.append(syllables[rest % syllables.length]);
+            rest /= syllables.length;
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    private static int daysIn(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // [Aggregate Check Function]
+    // EFFECTS:  builds FakebookAggregates from <snapshot> and feeds them <changes> random
+    //           changes drawn from <seed>, each the delete of a Users, Cities, or Events row,
+    //           mostly followed by the insert of that row with a new birth month and first
+    //           name, state, or event city; returns whether verify() then agrees with a
+    //           rebuild from the rows left
+    static boolean checkAggregates(FakebookSnapshot snapshot, int changes, long seed) {
+        int[] tables = { FakebookSnapshot.Users, FakebookSnapshot.Cities, FakebookSnapshot.Events };
+        FakebookAggregates aggregates = FakebookAggregates.fromSnapshot(snapshot);
+        ArrayList<ArrayList<int[]>> rows = new ArrayList<ArrayList<int[]>>();
+        ArrayList<ArrayList<String[]>> texts = new ArrayList<ArrayList<String[]>>();
+        for (int table : tables) {
+            FakebookTable data = snapshot.getTable(table);
+            ArrayList<int[]> tableRows = new ArrayList<int[]>(data.getRowCount());
+            ArrayList<String[]> tableTexts = new ArrayList<String[]>(data.getRowCount());
+            for (int at = 0; at < data.getRowCount(); at++) {
+                int[] row = new int[data.getColumnCount()];
+                String[] text = new String[data.getColumnCount()];
+                for (int column = 0; column < row.length; column++) {
+                    row[column] = data.get(at, column);
+                    text[column] = FakebookSnapshot.isText(table, column) ? snapshot.text(row[column]) : null;
+                }
+                tableRows.add(row);
+                tableTexts.add(text);
+            }
+            rows.add(tableRows);
+            texts.add(tableTexts);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int change = 0; change < changes; change++) {
+            int idx = random.nextInt(tables.length);
+            ArrayList<int[]> tableRows = rows.get(idx);
+            ArrayList<String[]> tableTexts = texts.get(idx);
+            if (tableRows.isEmpty()) {
+                continue;
+            }
+            int at = random.nextInt(tableRows.size());
+            aggregates.delete(tables[idx], tableRows.get(at), tableTexts.get(at));
+            if (random.nextInt(4) == 0) {
+                // gone for good: the last row takes its place
+                int last = tableRows.size() - 1;
+                tableRows.set(at, tableRows.get(last));
+                tableTexts.set(at, tableTexts.get(last));
+                tableRows.remove(last);
+                tableTexts.remove(last);
+                continue;
+            }
+
+            // the new values come from another row, so that names, states, and cities repeat
+            int[] row = tableRows.get(at).clone();
+            String[] text = tableTexts.get(at).clone();
+            int other = random.nextInt(tableRows.size());
+            if (tables[idx] == FakebookSnapshot.Users) {
+                row[FakebookSnapshot.MonthOfBirth] = random.nextInt(13) == 0 ? FakebookSnapshot.NULL : 1 + random.nextInt(12);
+                text[FakebookSnapshot.FirstName] = tableTexts.get(other)[FakebookSnapshot.FirstName];
+            }
+            else if (tables[idx] == FakebookSnapshot.Cities) {
+                text[FakebookSnapshot.StateName] = tableTexts.get(other)[FakebookSnapshot.StateName];
+            }
+            else {
+                row[FakebookSnapshot.EventCityID] = tableRows.get(other)[FakebookSnapshot.EventCityID];
+            }
+            aggregates.insert(tables[idx], row, text);
+            tableRows.set(at, row);
+            tableTexts.set(at, text);
+        }
+
+        FakebookSnapshot.Builder builder = new FakebookSnapshot.Builder();
+        for (int idx = 0; idx < tables.length; idx++) {
+            for (int at = 0; at < rows.get(idx).size(); at++) {
+                int[] row = rows.get(idx).get(at).clone();
+                for (int column = 0; column < row.length; column++) {
+                    if (FakebookSnapshot.isText(tables[idx], column)) {
+                        row[column] = builder.encode(texts.get(idx).get(at)[column]);
+                    }
+                }
+                builder.addRow(tables[idx], row);
+            }
+        }
+        return aggregates.verify(builder.build());
+    }
+
+    // [Command Line Function]
+    // Expected Command Line Arguments:
+    //  [0] the number of users
+    //  [1] the seed
+    //  [2] either a directory, to write one bulk-load file per table into, or "snapshot",
+    //      followed by [3] a snapshot file to write (see FakebookSnapshotFile), or "jdbc",
+    //      followed by [3] a JDBC URL, [4] a user name, [5] a password, and [6] the prefix
+    //      of the target table names (e.g. "myname.PUBLIC_"), or "aggregates", followed by
+    //      [3] a number of changes, to run checkAggregates on the generated data; a failed
+    //      check ends the program with exit status 1
+    public static void main(String[] args) throws IOException, SQLException {
+        FakebookDataGenerator generator = new FakebookDataGenerator(Long.parseLong(args[1]), Integer.parseInt(args[0]));
+        long begin = System.nanoTime();
+        long[] counts;
+        if (args[2].equals("jdbc")) {
+            try (Connection connection = DriverManager.getConnection(args[3], args[4], args[5])) {
+                counts = generator.generate(new JdbcSink(connection, args[6], FakebookOracleConstants.BatchSize));
+            }
+        }
+        else if (args[2].equals("snapshot")) {
+            SnapshotSink sink = new SnapshotSink();
+            counts = generator.generate(sink);
+            FakebookSnapshotFile.write(sink.getSnapshot(), new File(args[3]));
+        }
+        else if (args[2].equals("aggregates")) {
+            SnapshotSink sink = new SnapshotSink();
+            counts = generator.generate(sink);
+            int changes = Integer.parseInt(args[3]);
+            boolean verified = checkAggregates(sink.getSnapshot(), changes, Long.parseLong(args[1]));
+            System.err.println(String.format("Aggregates after %d change(s): %s", changes,
+                verified ? "verified" : "DIFFER from a rebuild"));
+            if (!verified) {
+                System.exit(1);
+            }
+        }
+        else {
+            counts = generator.generate(new FileSink(new File(args[2])));
+        }
+        for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+            System.err.println(String.format("%s: %d row(s)", baseName(table), counts[table]));
+        }
+        System.err.println(String.format("Generated in %.3f s", (System.nanoTime() - begin) / 1e9));
+    }
+
+    // EFFECTS:  returns the name of <table> without its schema prefix, e.g. "Users"
+    static String baseName(int table) {
+        String name = FakebookSnapshot.sourceTableName(table);
+        return name.substring(name.indexOf("PUBLIC_") + "PUBLIC_".length());
+    }
+
+    /*
+        A Sink receives the generated rows table by table. Each row holds one value per
+        column of the table, laid out as in FakebookSnapshot: integer columns are in <row>,
+        with FakebookSnapshot.NULL for NULL, and text columns are in <text>, with null for
+        NULL. Both arrays are reused for the next row.
+    */
+    interface Sink {
+        void begin(int table) throws IOException, SQLException;
+        void row(int table, int[] row, String[] text) throws IOException, SQLException;
+        void end(int table) throws IOException, SQLException;
+    }
+
+    /*
+        A FileSink writes every table to <directory>/<table>.tsv, e.g. Users.tsv, one row per
+        line with tab-separated columns in FakebookSnapshot order and NULL as an empty field,
+        which is what SQL*Loader (with TRAILING NULLCOLS) and most bulk loaders accept.
+    */
+    static final class FileSink implements Sink {
+        FileSink(File directory) {
+            this.directory = directory;
+        }
+
+        public void begin(int table) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, baseName(table) + ".tsv")), StandardCharsets.UTF_8), 1 << 20);
+        }
+
+        public void row(int table, int[] row, String[] text) throws IOException {
+            int columns = FakebookSnapshot.columnNames(table).length;
+            for (int column = 0; column < columns; column++) {
+                if (column != 0) {
+                    out.write('\t');
+                }
+                if (FakebookSnapshot.isText(table, column)) {
+                    if (text[column] != null) {
+                        out.write(text[column]);
+                    }
+                }
+                else if (row[column] != FakebookSnapshot.NULL) {
+                    out.write(Integer.toString(row[column]));
+                }
+            }
+            out.write('\n');
+        }
+
+        public void end(int table) throws IOException {
+            out.close();
+            out = null;
+        }
+
+        private final File directory;
+        private Writer out;
+    }
+
+    /*
+        A JdbcSink inserts every table into <prefix><table>, e.g. myname.PUBLIC_Users, with
+        one PreparedStatement per table, sending <batchSize> rows per batch and committing
+        after every batch. Only the columns in FakebookSnapshot are filled; any other columns
+        of the target tables must be nullable or have defaults.
+    */
+    static final class JdbcSink implements Sink {
+        JdbcSink(Connection connection, String prefix, int batchSize) {
+            this.connection = connection;
+            this.prefix = prefix;
+            this.batchSize = batchSize;
+        }
+
+        public void begin(int table) throws SQLException {
+            String[] columns = FakebookSnapshot.columnNames(table);
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(prefix).append(baseName(table)).append(" (");
+            for (int column = 0; column < columns.length; column++) {
+                sql.append(column == 0 ? "" : ", ").append(columns[column]);
+            }
+            sql.append(") VALUES (");
+            for (int column = 0; column < columns.length; column++) {
+                sql.append(column == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            stmt = connection.prepareStatement(sql.toString());
+            columnCount = columns.length;
+            pending = 0;
+        }
+
+        public void row(int table, int[] row, String[] text) throws SQLException {
+            for (int column = 0; column < columnCount; column++) {
+                if (FakebookSnapshot.isText(table, column)) {
+                    stmt.setString(column + 1, text[column]);
+                }
+                else if (row[column] == FakebookSnapshot.NULL) {
+                    stmt.setNull(column + 1, Types.INTEGER);
+                }
+                else {
+                    stmt.setInt(column + 1, row[column]);
+                }
+            }
+            stmt.addBatch();
+            if (++pending == batchSize) {
+                flush();
+            }
+        }
+
+        public void end(int table) throws SQLException {
+            try {
+                flush();
+            }
+            finally {
+                stmt.close();
+                stmt = null;
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending > 0) {
+                stmt.executeBatch();
+                connection.commit();
+                pending = 0;
+            }
+        }
+
+        private final Connection connection;
+        private final String prefix;
+        private final int batchSize;
+        private PreparedStatement stmt;
+        private int columnCount;
+        private int pending;
+        private boolean autoCommit;
+    }
+
+    /*
+        A SnapshotSink builds a FakebookSnapshot from the generated rows, for the in-memory
+        engine; getSnapshot() returns it once every table has been generated.
+    */
+    static final class SnapshotSink implements Sink {
+        SnapshotSink() {
+            builder = new FakebookSnapshot.Builder();
+            encoded = new int[8];
+        }
+
+        public void begin(int table) {
+        }
+
+        public void row(int table, int[] row, String[] text) {
+            int columns = FakebookSnapshot.columnNames(table).length;
+            for (int column = 0; column < columns; column++) {
+                encoded[column] = FakebookSnapshot.isText(table, column) ? builder.encode(text[column]) : row[column];
+            }
+            builder.addRow(table, encoded);
+        }
+
+        public void end(int table) {
+        }
+
+        public FakebookSnapshot getSnapshot() {
+            return builder.build();
+        }
+
+        private final FakebookSnapshot.Builder builder;
+        private final int[] encoded;
+    }
+
+    // Member Variables
+    private final long seed;
+    private final int users;
+    private double averageFriends = 20.0;
+    private double friendExponent = 2.5;
+    private double eventsPerUser = 0.5;
+    private double albumsPerUser = 1.0;
+    private double programsPerUser = 1.5;
+
+    private static final int AlbumPhotos = 5;           // mean photos per album
+    private static final int MaxTags = 8;               // most tags per photo
+
+    private static final String[] FirstSyllables = {
+        "an", "be", "ca", "da", "el", "fi", "ga", "ha", "is", "jo", "ka", "li", "ma", "na", "ol",
+        "pe", "ro", "sa", "ta", "vi", "wi", "ya", "za", "mi", "lu"
+    };
+    private static final String[] LastSyllables = {
+        "ad", "berg", "car", "dal", "ers", "field", "gan", "hart", "ing", "kov", "lan", "mon", "ner",
+        "ors", "per", "quin", "ros", "son", "ton", "ul", "ver", "wood", "yam", "zel", "ash", "bro",
+        "chen", "dor", "ez", "fox"
+    };
+    private static final String[] States = {
+        "Alabama", "Alaska", "Arizona", "Arkansas", "California", "Colorado", "Connecticut",
+        "Delaware", "Florida", "Georgia", "Hawaii", "Idaho", "Illinois", "Indiana", "Iowa",
+        "Kansas", "Kentucky", "Louisiana", "Maine", "Maryland", "Massachusetts", "Michigan",
+        "Minnesota", "Mississippi", "Missouri", "Montana", "Nebraska", "Nevada", "New Hampshire",
+        "New Jersey", "New Mexico", "New York", "North Carolina", "North Dakota", "Ohio",
+        "Oklahoma", "Oregon", "Pennsylvania", "Rhode Island", "South Carolina", "South Dakota",
+        "Tennessee", "Texas", "Utah", "Vermont", "Virginia", "Washington", "West Virginia",
+        "Wisconsin", "Wyoming"
+    };
+    private static final String[] Concentrations = {
+        "Computer Science", "Mathematics", "Physics", "Economics", "History", "Biology",
+        "Chemistry", "English", "Psychology", "Music"
+    };
+    private static final String[] Degrees = { "BA", "BS", "MA", "MS", "MBA", "PhD" };
+    private static final String[] EventKinds = { "Party", "Concert", "Meetup", "Game", "Lecture", "Trip" };
+}
@@ -0,0 +1,265 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/*
+    The FakebookEventStateCounter class answers Query 7 with a parallel partitioned hash
+    join of Events and Cities on a ForkJoinPool. Cities are hashed on City_ID into a fixed
+    number of partitions, each with a small map from city to state, and numbered states
+    densely. The event rows are split into ranges; every range first counts how many of
+    its events fall in each partition, and then copies their city IDs to that partition's
+    slice of one shared array, so that the events of a partition end up next to each other
+    without any locking. Each partition is then probed against its own city map, and adds
+    up its events per state in an int array borrowed from the counters of the run, which
+    hold no more arrays than partitions are probed at once. The arrays are summed at the
+    end, and one pass over the states finds the highest count and the states that share it.
+*/
+final class FakebookEventStateCounter {
+    // [Constructor]
+    // EFFECTS:  creates a counter over <snapshot> that runs on the common ForkJoinPool
+    public FakebookEventStateCounter(FakebookSnapshot snapshot) {
+        this(snapshot, ForkJoinPool.commonPool());
+    }
+
+    // [Constructor]
+    // EFFECTS:  creates a counter over <snapshot> that runs on <pool>
+    public FakebookEventStateCounter(FakebookSnapshot snapshot, ForkJoinPool pool) {
+        this.snapshot = snapshot;
+        this.pool = pool;
+    }
+
+    // [Count Function]
+    // EFFECTS:  returns the state or states with the most events, in alphabetical order with
+    //           a NULL state last, and their number of events; events whose city is not in
+    //           Cities are not counted, and EventStateInfo(-1) is returned if none is left
+    public EventStateInfo count() {
+        return pool.invoke(new RecursiveTask<EventStateInfo>() {
+            protected EventStateInfo compute() {
+                return new Run().execute();
+            }
+        });
+    }
+
+    /*
+        A Run holds the working state of one count(): the city maps of the partitions, the
+        events partitioned by city, and the counters of the partitions.
+    */
+    private final class Run {
+        Run() {
+            FakebookTable cities = snapshot.getTable(FakebookSnapshot.Cities);
+            events = snapshot.getTable(FakebookSnapshot.Events);
+
+            // dense state numbers; NULL states share one number of their own
+            FakebookIntIntMap stateNumbers = new FakebookIntIntMap(64);
+            stateCodes = new int[16];
+            cityStates = new FakebookIntIntMap[Partitions];
+            for (int partition = 0; partition < Partitions; partition++) {
+                cityStates[partition] = new FakebookIntIntMap(cities.getRowCount() / Partitions + 1);
+            }
+            for (int row = 0; row < cities.getRowCount(); row++) {
+                int code = cities.get(row, FakebookSnapshot.StateName);
+                int key = code == FakebookSnapshot.NULL ? -1 : code;
+                int state = stateNumbers.get(key, -1);
+                if (state < 0) {
+                    state = stateNumbers.size();
+                    stateNumbers.put(key, state);
+                    if (state == stateCodes.length) {
+                        stateCodes = Arrays.copyOf(stateCodes, state * 2);
+                    }
+                    stateCodes[state] = code;
+                }
+                int city = cities.get(row, FakebookSnapshot.CityID);
+                cityStates[partition(city)].put(city, state);
+            }
+            stateCount = stateNumbers.size();
+
+            int rows = events.getRowCount();
+            ranges = Math.max(1, Math.min(pool.getParallelism() * 4, rows / MinRange));
+            histograms = new int[ranges][Partitions];
+            starts = new int[Partitions + 1];
+            spareCounters = new ConcurrentLinkedQueue<int[]>();
+            allCounters = new ArrayList<int[]>();
+        }
+
+        EventStateInfo execute() {
+            // 1. partition sizes per range of events
+            ArrayList<Step> steps = new ArrayList<Step>();
+            for (int range = 0; range < ranges; range++) {
+                steps.add(new Step(this, Histogram, range));
+            }
+            ForkJoinTask.invokeAll(steps);
+
+            // 2. where every range writes within every partition
+            int[][] offsets = new int[ranges][Partitions];
+            int position = 0;
+            for (int partition = 0; partition < Partitions; partition++) {
+                starts[partition] = position;
+                for (int range = 0; range < ranges; range++) {
+                    offsets[range][partition] = position;
+                    position += histograms[range][partition];
+                }
+            }
+            starts[Partitions] = position;
+            histograms = offsets;
+            partitioned = new int[position];
+
+            // 3. scatter, then 4. probe and count
+            steps.clear();
+            for (int range = 0; range < ranges; range++) {
+                steps.add(new Step(this, Scatter, range));
+            }
+            ForkJoinTask.invokeAll(steps);
+            steps.clear();
+            for (int partition = 0; partition < Partitions; partition++) {
+                steps.add(new Step(this, Probe, partition));
+            }
+            ForkJoinTask.invokeAll(steps);
+
+            // 5. one pass for the highest count and its ties
+            int[] totals = new int[stateCount];
+            for (int[] local : allCounters) {
+                for (int state = 0; state < stateCount; state++) {
+                    totals[state] += local[state];
+                }
+            }
+            int maxEvents = 0;
+            ArrayList<String> popular = new ArrayList<String>();
+            for (int state = 0; state < stateCount; state++) {
+                if (totals[state] > maxEvents) {
+                    maxEvents = totals[state];
+                    popular.clear();
+                }
+                if (totals[state] == maxEvents && maxEvents > 0) {
+                    popular.add(snapshot.text(stateCodes[state]));
+                }
+            }
+            if (maxEvents == 0) {
+                return new EventStateInfo(-1);
+            }
+
+            Collections.sort(popular, NullsLast);
+            EventStateInfo info = new EventStateInfo(maxEvents);
+            for (String state : popular) {
+                info.addState(state);
+            }
+            return info;
+        }
+
+        // EFFECTS:  returns the rows [begin, end) of range <range> of the events
+        int begin(int range) {
+            return (int)((long)events.getRowCount() * range / ranges);
+        }
+
+        void histogram(int range) {
+            int[] histogram = histograms[range];
+            for (int row = begin(range); row < begin(range + 1); row++) {
+                int city = events.get(row, FakebookSnapshot.EventCityID);
+                if (city != FakebookSnapshot.NULL) {
+                    histogram[partition(city)]++;
+                }
+            }
+        }
+
+        void scatter(int range) {
+            int[] next = histograms[range];
+            for (int row = begin(range); row < begin(range + 1); row++) {
+                int city = events.get(row, FakebookSnapshot.EventCityID);
+                if (city != FakebookSnapshot.NULL) {
+                    partitioned[next[partition(city)]++] = city;
+                }
+            }
+        }
+
+        void probe(int partition) {
+            int[] local = spareCounters.poll();
+            if (local == null) {
+                local = new int[stateCount];
+                synchronized (allCounters) {
+                    allCounters.add(local);
+                }
+            }
+            FakebookIntIntMap states = cityStates[partition];
+            for (int idx = starts[partition]; idx < starts[partition + 1]; idx++) {
+                int state = states.get(partitioned[idx], -1);
+                if (state >= 0) {
+                    local[state]++;
+                }
+            }
+            spareCounters.offer(local);
+        }
+
+        private final FakebookTable events;
+        private final FakebookIntIntMap[] cityStates;   // per partition: city ID to state number
+        private int[] stateCodes;                       // state number to text code
+        private final int stateCount;
+        private final int ranges;
+        private int[][] histograms;                     // per range: events per partition, then write positions
+        private final int[] starts;                     // first position of every partition
+        private int[] partitioned;                      // event city IDs, grouped by partition
+        private final ConcurrentLinkedQueue<int[]> spareCounters;  // counters not in use
+        private final ArrayList<int[]> allCounters;
+    }
+
+    /*
+        A Step runs one phase of a Run for one range of events or one partition.
+    */
+    private static final class Step extends RecursiveAction {
+        Step(Run run, int phase, int index) {
+            this.run = run;
+            this.phase = phase;
+            this.index = index;
+        }
+
+        protected void compute() {
+            if (phase == Histogram) {
+                run.histogram(index);
+            }
+            else if (phase == Scatter) {
+                run.scatter(index);
+            }
+            else {
+                run.probe(index);
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final Run run;
+        private final int phase;
+        private final int index;
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns the partition of <city>
+    private static int partition(int city) {
+        int h = city * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (Partitions - 1);
+    }
+
+    // Member Variables
+    private final FakebookSnapshot snapshot;
+    private final ForkJoinPool pool;
+
+    private static final int Partitions = 64;           // a power of two
+    private static final int MinRange = 4096;           // fewest events per range
+    private static final int Histogram = 0;
+    private static final int Scatter = 1;
+    private static final int Probe = 2;
+
+    // orders state names alphabetically with null last, as Query 7 reports a NULL state
+    private static final Comparator<String> NullsLast = new Comparator<String>() {
+        public int compare(String a, String b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : (a == null ? 1 : -1);
+            }
+            return a.compareTo(b);
+        }
+    };
+}
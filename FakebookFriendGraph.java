@@ -0,0 +1,271 @@
+package project2;
+
+import java.util.Arrays;
+
+/*
+    The FakebookFriendGraph class stores the Fakebook friendships as an undirected graph in
+    compressed sparse row form. User IDs are remapped to dense vertex indexes in ascending ID
+    order, so comparing two vertexes compares their user IDs. The friends of vertex v are
+    neighbor(start(v)) .. neighbor(end(v) - 1), sorted by vertex and without duplicates; each
+    friendship is listed under both of its users, although the Friends table stores it once.
+    The whole graph takes one int per vertex plus two ints per friendship.
+*/
+final class FakebookFriendGraph {
+    // [Constructor]
+    // REQUIRES: <ids> is sorted ascending; <offsets> has one more entry than <ids>; the
+    //           neighbors of each vertex are sorted and distinct
+    private FakebookFriendGraph(int[] ids, int[] offsets, int[] neighbors) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        index = new FakebookIntIntMap(ids.length);
+        for (int vertex = 0; vertex < ids.length; vertex++) {
+            index.put(ids[vertex], vertex);
+        }
+    }
+
+    // [Snapshot Function]
+    // EFFECTS:  builds the graph of every user in <snapshot>, including users without
+    //           friends; friendships naming an unknown user are skipped
+    public static FakebookFriendGraph fromSnapshot(FakebookSnapshot snapshot) {
+        FakebookTable users = snapshot.getTable(FakebookSnapshot.Users);
+        FakebookTable friends = snapshot.getTable(FakebookSnapshot.Friends);
+        Builder builder = new Builder();
+        for (int row = 0; row < users.getRowCount(); row++) {
+            builder.addVertex(users.get(row, FakebookSnapshot.UserID));
+        }
+        builder.restrictToVertexes();
+        for (int row = 0; row < friends.getRowCount(); row++) {
+            builder.addEdge(friends.get(row, FakebookSnapshot.User1ID), friends.get(row, FakebookSnapshot.User2ID));
+        }
+        return builder.build();
+    }
+
+    // [Vertex Functions]
+    // EFFECTS:  return the number of vertexes and friendships, the user ID of <vertex>, and
+    //           the vertex of user <id> (-1 if the user is not in the graph)
+    public int getVertexCount() {
+        return ids.length;
+    }
+
+    public int getEdgeCount() {
+        return neighbors.length / 2;
+    }
+
+    public int id(int vertex) {
+        return ids[vertex];
+    }
+
+    public int vertexOf(int id) {
+        return id == FakebookSnapshot.NULL ? -1 : index.get(id, -1);
+    }
+
+    // [Neighbor Functions]
+    // EFFECTS:  the friends of <vertex> are neighbor(start(vertex)) through
+    //           neighbor(end(vertex) - 1), in ascending order
+    public int degree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    public int start(int vertex) {
+        return offsets[vertex];
+    }
+
+    public int end(int vertex) {
+        return offsets[vertex + 1];
+    }
+
+    public int neighbor(int position) {
+        return neighbors[position];
+    }
+
+    // EFFECTS:  returns whether <vertex1> and <vertex2> are friends, in O(log degree)
+    public boolean areFriends(int vertex1, int vertex2) {
+        if (degree(vertex1) > degree(vertex2)) {
+            int swap = vertex1;
+            vertex1 = vertex2;
+            vertex2 = swap;
+        }
+        return Arrays.binarySearch(neighbors, offsets[vertex1], offsets[vertex1 + 1], vertex2) >= 0;
+    }
+
+    // [Intersection Functions]
+    // REQUIRES: <common> has room for min(degree(vertex1), degree(vertex2)) vertexes
+    // MODIFIES: <common>
+    // EFFECTS:  writes the common friends of <vertex1> and <vertex2> to the front of
+    //           <common> in ascending order and returns how many there are; countCommon
+    //           only counts them
+    public int intersect(int vertex1, int vertex2, int[] common) {
+        int count = 0;
+        int i = offsets[vertex1];
+        int j = offsets[vertex2];
+        int iEnd = offsets[vertex1 + 1];
+        int jEnd = offsets[vertex2 + 1];
+        while (i < iEnd && j < jEnd) {
+            if (neighbors[i] < neighbors[j]) {
+                i++;
+            }
+            else if (neighbors[i] > neighbors[j]) {
+                j++;
+            }
+            else {
+                common[count++] = neighbors[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    public int countCommon(int vertex1, int vertex2) {
+        int count = 0;
+        int i = offsets[vertex1];
+        int j = offsets[vertex2];
+        int iEnd = offsets[vertex1 + 1];
+        int jEnd = offsets[vertex2 + 1];
+        while (i < iEnd && j < jEnd) {
+            if (neighbors[i] < neighbors[j]) {
+                i++;
+            }
+            else if (neighbors[i] > neighbors[j]) {
+                j++;
+            }
+            else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /*
+        A FakebookFriendGraph.Builder collects friendships one at a time, as they are read
+        from the Friends table, and numbers the users it sees in order of first appearance.
+        build() renumbers them in ID order and lays the edges out in CSR form.
+    */
+    static final class Builder {
+        // [Constructor]
+        public Builder() {
+            index = new FakebookIntIntMap(1024);
+            ids = new int[1024];
+            from = new int[1024];
+            to = new int[1024];
+        }
+
+        // [Add Vertex Function]
+        // REQUIRES: <id> is not FakebookSnapshot.NULL
+        // MODIFIES: this
+        // EFFECTS:  adds user <id> to the graph, with or without friends
+        public void addVertex(int id) {
+            vertex(id);
+        }
+
+        // [Restrict Function]
+        // MODIFIES: this
+        // EFFECTS:  from now on, edges naming a user that has not been added yet are skipped
+        public void restrictToVertexes() {
+            closed = true;
+        }
+
+        // [Add Edge Function]
+        // MODIFIES: this
+        // EFFECTS:  adds the friendship between users <id1> and <id2>; self-friendships and
+        //           NULL IDs are skipped, and a friendship added twice is kept once
+        public void addEdge(int id1, int id2) {
+            if (id1 == id2 || id1 == FakebookSnapshot.NULL || id2 == FakebookSnapshot.NULL) {
+                return;
+            }
+            if (closed && (!index.containsKey(id1) || !index.containsKey(id2))) {
+                return;
+            }
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = vertex(id1);
+            to[edges] = vertex(id2);
+            edges++;
+        }
+
+        // [Build Function]
+        // EFFECTS:  returns the graph of everything added so far; the builder must not be
+        //           used afterwards
+        public FakebookFriendGraph build() {
+            // renumber the vertexes in ID order
+            int[] sorted = Arrays.copyOf(ids, vertexes);
+            Arrays.sort(sorted);
+            int[] renumber = new int[vertexes];
+            for (int vertex = 0; vertex < vertexes; vertex++) {
+                renumber[vertex] = Arrays.binarySearch(sorted, ids[vertex]);
+            }
+            ids = null;
+
+            int[] offsets = new int[vertexes + 1];
+            for (int edge = 0; edge < edges; edge++) {
+                from[edge] = renumber[from[edge]];
+                to[edge] = renumber[to[edge]];
+                offsets[from[edge] + 1]++;
+                offsets[to[edge] + 1]++;
+            }
+            for (int vertex = 0; vertex < vertexes; vertex++) {
+                offsets[vertex + 1] += offsets[vertex];
+            }
+
+            int[] fill = Arrays.copyOf(offsets, vertexes);
+            int[] neighbors = new int[edges * 2];
+            for (int edge = 0; edge < edges; edge++) {
+                neighbors[fill[from[edge]]++] = to[edge];
+                neighbors[fill[to[edge]]++] = from[edge];
+            }
+            from = null;
+            to = null;
+
+            // sort every neighbor list and squeeze out duplicate friendships in place
+            int size = 0;
+            for (int vertex = 0; vertex < vertexes; vertex++) {
+                int begin = offsets[vertex];
+                int end = offsets[vertex + 1];
+                Arrays.sort(neighbors, begin, end);
+                offsets[vertex] = size;
+                for (int position = begin; position < end; position++) {
+                    if (position == begin || neighbors[position] != neighbors[position - 1]) {
+                        neighbors[size++] = neighbors[position];
+                    }
+                }
+            }
+            offsets[vertexes] = size;
+            return new FakebookFriendGraph(sorted, offsets,
+                size == neighbors.length ? neighbors : Arrays.copyOf(neighbors, size));
+        }
+
+        // [Helper Functions]
+        private int vertex(int id) {
+            int vertex = index.get(id, -1);
+            if (vertex < 0) {
+                if (vertexes == ids.length) {
+                    ids = Arrays.copyOf(ids, vertexes * 2);
+                }
+                vertex = vertexes++;
+                ids[vertex] = id;
+                index.put(id, vertex);
+            }
+            return vertex;
+        }
+
+        // Member Variables
+        private final FakebookIntIntMap index;
+        private int[] ids;
+        private int[] from;
+        private int[] to;
+        private int vertexes;
+        private int edges;
+        private boolean closed;
+    }
+
+    // Member Variables
+    private final int[] ids;              // user ID of every vertex, ascending
+    private final int[] offsets;          // friends of vertex v start at offsets[v]
+    private final int[] neighbors;        // friend lists of all vertexes, back to back
+    private final FakebookIntIntMap index;
+}
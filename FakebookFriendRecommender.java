@@ -0,0 +1,156 @@
+package project2;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+    The FakebookFriendRecommender class ranks the pairs of users who are not friends by how
+    many friends they have in common, which is what Query 6 reports. The work is split over
+    ranges of vertexes and run on a ForkJoinPool. For each user in its range, a worker walks
+    the friends of that user's friends with a higher ID and counts them in an int array that
+    it borrows from the scratch arrays of the run, so no pair is ever boxed or stored in a
+    map, and no more arrays are allocated than ranges are counted at once. Every
+    range keeps only its best pairs in a bounded FakebookPairHeap, and the heaps are merged
+    as the ranges are joined.
+*/
+final class FakebookFriendRecommender {
+    // [Constructor]
+    // EFFECTS:  creates a recommender over <graph> that runs on the common ForkJoinPool
+    public FakebookFriendRecommender(FakebookFriendGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    // [Constructor]
+    // EFFECTS:  creates a recommender over <graph> that runs on <pool>
+    public FakebookFriendRecommender(FakebookFriendGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    // [Recommend Function]
+    // EFFECTS:  returns the <num> pairs of vertexes (first < second) that are not friends
+    //           but have the most friends in common, best first: by common friend count
+    //           descending, then by first and second vertex ascending. count(i) of the
+    //           result is the number of common friends
+    public FakebookPairHeap recommend(int num) {
+        int vertexes = graph.getVertexCount();
+        if (num <= 0 || vertexes == 0) {
+            return new FakebookPairHeap(0);
+        }
+
+        // small ranges keep the workers busy even though low IDs have more pairs to count
+        int grain = Math.max(64, vertexes / (pool.getParallelism() * 16));
+        ConcurrentLinkedQueue<Counters> spare = new ConcurrentLinkedQueue<Counters>();
+        FakebookPairHeap top = pool.invoke(new RangeTask(0, vertexes, grain, num, spare));
+        top.sort();
+        return top;
+    }
+
+    // [Count Function]
+    // REQUIRES: <counters> is not in use by any other thread
+    // MODIFIES: <top>, <counters>
+    // EFFECTS:  offers every pair (first, second) with first in [<begin>, <end>), second
+    //           greater than first, not friends, and at least one common friend to <top>
+    private void count(int begin, int end, Counters counters, FakebookPairHeap top) {
+        int[] common = counters.common;
+        int[] adjacent = counters.adjacent;
+        int[] touched = counters.touched;
+        for (int first = begin; first < end; first++) {
+            int stamp = first + 1;
+            for (int i = graph.start(first); i < graph.end(first); i++) {
+                adjacent[graph.neighbor(i)] = stamp;
+            }
+
+            int size = 0;
+            for (int i = graph.start(first); i < graph.end(first); i++) {
+                int middle = graph.neighbor(i);
+                for (int j = graph.end(middle) - 1; j >= graph.start(middle); j--) {
+                    int second = graph.neighbor(j);
+                    if (second <= first) {
+                        break;              // neighbor lists are sorted
+                    }
+                    if (adjacent[second] == stamp) {
+                        continue;
+                    }
+                    if (common[second]++ == 0) {
+                        touched[size++] = second;
+                    }
+                }
+            }
+
+            for (int idx = 0; idx < size; idx++) {
+                int second = touched[idx];
+                top.offer(common[second], first, second);
+                common[second] = 0;
+            }
+        }
+    }
+
+    /*
+        Counters are the scratch arrays of one range being counted: common friend counts and
+        the list of vertexes whose count is non-zero, plus stamps marking the friends of the
+        vertex currently being counted. Counts are back to zero when a range is done, and
+        stamps are unique within a run, so the next range of the run can reuse them.
+    */
+    private static final class Counters {
+        Counters(int vertexes) {
+            common = new int[vertexes];
+            adjacent = new int[vertexes];
+            touched = new int[vertexes];
+        }
+
+        final int[] common;
+        final int[] adjacent;
+        final int[] touched;
+    }
+
+    /*
+        A RangeTask counts the pairs whose first vertex lies in [begin, end), splitting the
+        range in halves until it is no longer than the grain, and returns the best pairs.
+    */
+    private final class RangeTask extends RecursiveTask<FakebookPairHeap> {
+        RangeTask(int begin, int end, int grain, int num, ConcurrentLinkedQueue<Counters> spare) {
+            this.begin = begin;
+            this.end = end;
+            this.grain = grain;
+            this.num = num;
+            this.spare = spare;
+        }
+
+        protected FakebookPairHeap compute() {
+            if (end - begin <= grain) {
+                Counters local = spare.poll();
+                if (local == null) {
+                    local = new Counters(graph.getVertexCount());
+                }
+                FakebookPairHeap top = new FakebookPairHeap(num);
+                try {
+                    count(begin, end, local, top);
+                }
+                finally {
+                    spare.offer(local);
+                }
+                return top;
+            }
+
+            int middle = (begin + end) >>> 1;
+            RangeTask upper = new RangeTask(middle, end, grain, num, spare);
+            upper.fork();
+            FakebookPairHeap top = new RangeTask(begin, middle, grain, num, spare).compute();
+            top.addAll(upper.join());
+            return top;
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final int begin;
+        private final int end;
+        private final int grain;
+        private final int num;
+        private final ConcurrentLinkedQueue<Counters> spare;  // idle scratch arrays of the run
+    }
+
+    // Member Variables
+    private final FakebookFriendGraph graph;
+    private final ForkJoinPool pool;
+}
@@ -0,0 +1,422 @@
+package project2;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/*
+    The FakebookJdbcMetrics class is an in-process registry of what queries do over JDBC.
+    instrument() wraps a connection so that every statement prepared or created through it
+    is tracked under the name of the query function that borrowed it. For each distinct SQL
+    fingerprint (the SQL text with literals replaced by '?' and whitespace collapsed) the
+    registry records how often executeQuery() was called, the time spent in it, the time
+    spent in ResultSet.next() fetching rows, the number of rows, and the result set type.
+    For each query function it records the calls, executeQuery() calls, and the time the
+    connection was held; what execute and fetch time do not account for was spent building
+    results in Java. toString() dumps a summary.
+*/
+final class FakebookJdbcMetrics {
+    // [Instrument Function]
+    // REQUIRES: <connection> is a valid JDBC connection
+    // MODIFIES: this
+    // EFFECTS:  returns a connection that forwards to <connection> and records everything
+    //           executed through it under <method>; closing it closes <connection>
+    public Connection instrument(Connection connection, String method) {
+        MethodStats stats;
+        synchronized (this) {
+            stats = methods.get(method);
+            if (stats == null) {
+                stats = new MethodStats(method);
+                methods.put(method, stats);
+            }
+            stats.calls++;
+        }
+        return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new ConnectionHandler(connection, stats));
+    }
+
+    // [Statistics Accessors]
+    // EFFECTS:  return the number of times <method> borrowed an instrumented connection and
+    //           the number of executeQuery() calls it made, and a copy of the statistics of
+    //           every SQL fingerprint executed so far, in order of first execution
+    public synchronized long getCallCount(String method) {
+        MethodStats stats = methods.get(method);
+        return stats == null ? 0L : stats.calls;
+    }
+
+    public synchronized long getExecuteQueryCount(String method) {
+        MethodStats stats = methods.get(method);
+        return stats == null ? 0L : stats.executeQueries;
+    }
+
+    public synchronized List<StatementStats> getStatementStats() {
+        List<StatementStats> copies = new ArrayList<StatementStats>();
+        for (StatementStats stats : statements.values()) {
+            copies.add(stats.copy());
+        }
+        return copies;
+    }
+
+    // [Reset Function]
+    // MODIFIES: this
+    // EFFECTS:  forgets everything recorded so far
+    public synchronized void reset() {
+        methods.clear();
+        statements.clear();
+    }
+
+    // [FakebookJdbcMetrics-to-String Converter]
+    // EFFECTS:  returns a summary of every query function and the statements it executed
+    public synchronized String toString() {
+        StringBuilder summary = new StringBuilder("JDBC metrics:");
+        for (MethodStats method : methods.values()) {
+            long execute = 0L;
+            long fetch = 0L;
+            for (StatementStats stats : statements.values()) {
+                if (stats.method.equals(method.name)) {
+                    execute += stats.executeNanos;
+                    fetch += stats.fetchNanos;
+                }
+            }
+            summary.append(String.format("%n  %s: %d call(s), %d executeQuery call(s), held %.3f ms = " +
+                "execute %.3f ms + fetch %.3f ms + Java %.3f ms", method.name, method.calls, method.executeQueries,
+                method.heldNanos / 1e6, execute / 1e6, fetch / 1e6, Math.max(0L, method.heldNanos - execute - fetch) / 1e6));
+            for (StatementStats stats : statements.values()) {
+                if (stats.method.equals(method.name)) {
+                    summary.append(String.format("%n    %s", stats));
+                }
+            }
+        }
+        return summary.toString();
+    }
+
+    // [Fingerprint Function]
+    // EFFECTS:  returns <sql> with string and numeric literals replaced by '?' and every run
+    //           of whitespace replaced by a single space, so that statements differing only in
+    //           their literals share a fingerprint
+    static String fingerprint(String sql) {
+        StringBuilder result = new StringBuilder(sql.length());
+        int idx = 0;
+        while (idx < sql.length()) {
+            char c = sql.charAt(idx);
+            if (Character.isWhitespace(c)) {
+                while (idx < sql.length() && Character.isWhitespace(sql.charAt(idx))) {
+                    idx++;
+                }
+                if (result.length() > 0 && idx < sql.length()) {
+                    result.append(' ');
+                }
+            }
+            else if (c == '\'') {
+                idx++;
+                while (idx < sql.length()) {
+                    if (sql.charAt(idx++) == '\'') {
+                        if (idx == sql.length() || sql.charAt(idx) != '\'') {
+                            break;
+                        }
+                        idx++;                  // '' is a quote inside the literal
+                    }
+                }
+                result.append('?');
+            }
+            else if (Character.isDigit(c) && (result.length() == 0 || !isIdentifierChar(result.charAt(result.length() - 1)))) {
+                while (idx < sql.length() && (Character.isDigit(sql.charAt(idx)) || sql.charAt(idx) == '.')) {
+                    idx++;
+                }
+                result.append('?');
+            }
+            else {
+                result.append(c);
+                idx++;
+            }
+        }
+        return result.toString();
+    }
+
+    // [Helper Functions]
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+            case ResultSet.TYPE_FORWARD_ONLY:
+                return "FORWARD_ONLY";
+            case ResultSet.TYPE_SCROLL_INSENSITIVE:
+                return "SCROLL_INSENSITIVE";
+            case ResultSet.TYPE_SCROLL_SENSITIVE:
+                return "SCROLL_SENSITIVE";
+            default:
+                return "UNKNOWN";
+        }
+    }
+
+    private synchronized StatementStats statementStats(MethodStats method, String sql, int type) {
+        String fingerprint = fingerprint(sql);
+        String key = method.name + "\n" + fingerprint;
+        StatementStats stats = statements.get(key);
+        if (stats == null) {
+            stats = new StatementStats(method.name, fingerprint, typeName(type));
+            statements.put(key, stats);
+        }
+        return stats;
+    }
+
+    private synchronized void recordExecute(MethodStats method, StatementStats stats, long nanos) {
+        method.executeQueries++;
+        stats.executions++;
+        stats.executeNanos += nanos;
+        stats.maxExecuteNanos = Math.max(stats.maxExecuteNanos, nanos);
+    }
+
+    private synchronized void recordFetch(StatementStats stats, long rows, long nanos) {
+        stats.rows += rows;
+        stats.fetchNanos += nanos;
+    }
+
+    private synchronized void recordHeld(MethodStats method, long nanos) {
+        method.heldNanos += nanos;
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+        A StatementStats holds the totals of one SQL fingerprint executed by one query
+        function. The copies returned by getStatementStats() do not change afterwards.
+    */
+    static final class StatementStats {
+        StatementStats(String method, String fingerprint, String resultSetType) {
+            this.method = method;
+            this.fingerprint = fingerprint;
+            this.resultSetType = resultSetType;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getResultSetType() {
+            return resultSetType;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getExecuteMillis() {
+            return executeNanos / 1e6;
+        }
+
+        public double getMaxExecuteMillis() {
+            return maxExecuteNanos / 1e6;
+        }
+
+        public double getFetchMillis() {
+            return fetchNanos / 1e6;
+        }
+
+        public String toString() {
+            String text = fingerprint.length() > 100 ? fingerprint.substring(0, 97) + "..." : fingerprint;
+            return String.format("[%08x] %d execution(s), %s, %d row(s), execute %.3f ms (max %.3f ms), " +
+                "fetch %.3f ms: %s", fingerprint.hashCode(), executions, resultSetType, rows,
+                executeNanos / 1e6, maxExecuteNanos / 1e6, fetchNanos / 1e6, text);
+        }
+
+        StatementStats copy() {
+            StatementStats copy = new StatementStats(method, fingerprint, resultSetType);
+            copy.executions = executions;
+            copy.rows = rows;
+            copy.executeNanos = executeNanos;
+            copy.maxExecuteNanos = maxExecuteNanos;
+            copy.fetchNanos = fetchNanos;
+            return copy;
+        }
+
+        private final String method;
+        private final String fingerprint;
+        private final String resultSetType;
+        private long executions;
+        private long rows;
+        private long executeNanos;
+        private long maxExecuteNanos;
+        private long fetchNanos;
+    }
+
+    /*
+        A MethodStats holds the totals of one query function.
+    */
+    private static final class MethodStats {
+        MethodStats(String name) {
+            this.name = name;
+        }
+
+        final String name;
+        long calls;
+        long executeQueries;
+        long heldNanos;
+    }
+
+    /*
+        A ConnectionHandler is the handler behind each instrumented connection. It wraps
+        every statement prepared or created through the connection and records how long the
+        connection was held when it is closed.
+    */
+    private final class ConnectionHandler implements InvocationHandler {
+        ConnectionHandler(Connection connection, MethodStats method) {
+            this.connection = connection;
+            this.method = method;
+            opened = System.nanoTime();
+        }
+
+        public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+            String name = called.getName();
+            if (name.equals("close") && called.getParameterTypes().length == 0 && !closed) {
+                closed = true;
+                for (StatementHandler statement : statements) {
+                    statement.finish();
+                }
+                recordHeld(method, System.nanoTime() - opened);
+            }
+            Object result = forward(connection, called, args);
+            if (name.equals("prepareStatement")) {
+                return wrap(PreparedStatement.class, (Statement)result, (String)args[0]);
+            }
+            if (name.equals("prepareCall")) {
+                return wrap(CallableStatement.class, (Statement)result, (String)args[0]);
+            }
+            if (name.equals("createStatement")) {
+                return wrap(Statement.class, (Statement)result, null);
+            }
+            return result;
+        }
+
+        private Statement wrap(Class<?> type, Statement statement, String sql) {
+            StatementHandler handler = new StatementHandler(statement, sql, method);
+            statements.add(handler);
+            return (Statement)Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+
+        private final Connection connection;
+        private final MethodStats method;
+        private final long opened;
+        private final List<StatementHandler> statements = new ArrayList<StatementHandler>();
+        private boolean closed;
+    }
+
+    /*
+        A StatementHandler is the handler behind each instrumented statement. It times
+        executeQuery() and wraps the result set it returns.
+    */
+    private final class StatementHandler implements InvocationHandler {
+        StatementHandler(Statement statement, String sql, MethodStats method) {
+            this.statement = statement;
+            this.sql = sql;
+            this.method = method;
+        }
+
+        public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+            if (called.getName().equals("close")) {
+                finish();
+            }
+            if (!called.getName().equals("executeQuery")) {
+                return forward(statement, called, args);
+            }
+
+            finish();                           // executing again closes the previous results
+            String text = args != null && args.length > 0 ? (String)args[0] : sql;
+            StatementStats stats = statementStats(method, text == null ? "" : text, statement.getResultSetType());
+            long begin = System.nanoTime();
+            ResultSet results = (ResultSet)forward(statement, called, args);
+            recordExecute(method, stats, System.nanoTime() - begin);
+            current = new ResultSetHandler(results, stats);
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, current);
+        }
+
+        // EFFECTS:  records the rows of the current result set, which may never have been
+        //           read to the end or closed
+        void finish() {
+            if (current != null) {
+                current.finish();
+                current = null;
+            }
+        }
+
+        private final Statement statement;
+        private final String sql;
+        private final MethodStats method;
+        private ResultSetHandler current;
+    }
+
+    /*
+        A ResultSetHandler is the handler behind each instrumented result set. It times
+        next() and counts rows, and adds both to the registry once, when the rows run out or
+        the result set is closed.
+    */
+    private final class ResultSetHandler implements InvocationHandler {
+        ResultSetHandler(ResultSet results, StatementStats stats) {
+            this.results = results;
+            this.stats = stats;
+        }
+
+        public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+            String name = called.getName();
+            if (name.equals("next") && !done) {
+                long begin = System.nanoTime();
+                Boolean more = (Boolean)forward(results, called, args);
+                nanos += System.nanoTime() - begin;
+                if (more) {
+                    rows++;
+                }
+                else {
+                    finish();
+                }
+                return more;
+            }
+            if (name.equals("close")) {
+                finish();
+            }
+            return forward(results, called, args);
+        }
+
+        void finish() {
+            if (!done) {
+                done = true;
+                recordFetch(stats, rows, nanos);
+            }
+        }
+
+        private final ResultSet results;
+        private final StatementStats stats;
+        private long rows;
+        private long nanos;
+        private boolean done;
+    }
+
+    // Member Variables
+    private final LinkedHashMap<String, MethodStats> methods = new LinkedHashMap<String, MethodStats>();
+    private final LinkedHashMap<String, StatementStats> statements = new LinkedHashMap<String, StatementStats>();
+}
@@ -0,0 +1,105 @@
+package project2;
+
+/*
+    The FakebookMatchCounter class ranks the pairs of users that Query 5 matches up: users of
+    the same gender, born less than <yearDiff> years apart, who are not friends, by the number
+    of photos they are both tagged in. It keeps a posting list per photo of the users tagged
+    in it that have a gender and a birth year, sorted by gender and then birth year, so that
+    the pairs of a photo are walked within runs of one gender and a window of birth years
+    instead of over every two tags. Pairs are counted in a FakebookLongIntMap, friendship is
+    checked once per counted pair, and the best pairs are kept in a FakebookPairHeap.
+*/
+final class FakebookMatchCounter {
+    // [Constructor]
+    // REQUIRES: <photoTags> lists the vertexes of <graph> tagged in every photo, each at
+    //           most once; <genders> and <years> hold the gender code and birth year of
+    //           every vertex, or FakebookSnapshot.NULL
+    // EFFECTS:  creates a counter over the posting lists built from <photoTags>
+    public FakebookMatchCounter(FakebookFriendGraph graph, int[][] photoTags, int[] genders, int[] years) {
+        this.graph = graph;
+        this.genders = genders;
+        this.years = years;
+
+        starts = new int[photoTags.length + 1];
+        for (int photo = 0; photo < photoTags.length; photo++) {
+            int count = 0;
+            for (int user : photoTags[photo]) {
+                if (genders[user] != FakebookSnapshot.NULL && years[user] != FakebookSnapshot.NULL) {
+                    count++;
+                }
+            }
+            starts[photo + 1] = starts[photo] + count;
+        }
+        postings = new int[starts[photoTags.length]];
+        for (int photo = 0; photo < photoTags.length; photo++) {
+            int end = starts[photo];
+            for (int user : photoTags[photo]) {
+                if (genders[user] != FakebookSnapshot.NULL && years[user] != FakebookSnapshot.NULL) {
+                    // insertion sort, as a photo has few tags
+                    int at = end++;
+                    while (at > starts[photo] && before(user, postings[at - 1])) {
+                        postings[at] = postings[at - 1];
+                        at--;
+                    }
+                    postings[at] = user;
+                }
+            }
+        }
+    }
+
+    // [Match Function]
+    // EFFECTS:  returns the <num> pairs of vertexes (first < second) of the same gender,
+    //           born less than <yearDiff> years apart, and not friends, that share the most
+    //           photos, best first: by shared photo count descending, then by first and
+    //           second vertex ascending. count(i) of the result is the number of photos
+    public FakebookPairHeap match(int num, int yearDiff) {
+        FakebookPairHeap top = new FakebookPairHeap(num);
+        if (num <= 0 || yearDiff <= 0) {
+            return top;
+        }
+
+        FakebookLongIntMap shared = new FakebookLongIntMap(postings.length);
+        for (int photo = 0; photo + 1 < starts.length; photo++) {
+            int end = starts[photo + 1];
+            for (int i = starts[photo]; i < end; i++) {
+                int user1 = postings[i];
+                for (int j = i + 1; j < end; j++) {
+                    int user2 = postings[j];
+                    if (genders[user2] != genders[user1] || (long)years[user2] - years[user1] >= yearDiff) {
+                        break;
+                    }
+                    shared.add(user1 < user2 ? ((long)user1 << 32) | user2 : ((long)user2 << 32) | user1, 1);
+                }
+            }
+        }
+
+        for (int slot = 0; slot < shared.capacity(); slot++) {
+            if (shared.isUsed(slot)) {
+                long pair = shared.keyAt(slot);
+                int first = (int)(pair >>> 32);
+                int second = (int)pair;
+                if (!graph.areFriends(first, second)) {
+                    top.offer(shared.valueAt(slot), first, second);
+                }
+            }
+        }
+        top.sort();
+        return top;
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns whether <user1> comes before <user2> in a posting list
+    private boolean before(int user1, int user2) {
+        if (genders[user1] != genders[user2]) {
+            return genders[user1] < genders[user2];
+        }
+        return years[user1] < years[user2];
+    }
+
+    // Member Variables
+    private final FakebookFriendGraph graph;
+    private final int[] genders;                        // per vertex, FakebookSnapshot.NULL if none
+    private final int[] years;
+    private final int[] starts;                         // first posting of every photo
+    private final int[] postings;                       // tagged vertexes by gender, then year
+}
@@ -1,8 +1,12 @@
 package project2;
 
 import java.sql.SQLException;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public abstract class FakebookOracle {
     // Abstract Query Functions to be Implemented
@@ -17,74 +21,120 @@ public abstract class FakebookOracle {
     public abstract AgeInfo findAgeInfo(long userID) throws SQLException;
     public abstract FakebookArrayList<SiblingInfo> findPotentialSiblings() throws SQLException;
     
+    // Batch Query Functions
+    // EFFECTS:  returns the AgeInfo of every user in <userIDs>, keyed by user ID in the order
+    //   in which the IDs are first listed, exactly as findAgeInfo(long) would report it; this
+    //   default calls findAgeInfo(long) once per user, and subclasses may answer the whole
+    //   batch at once instead
+    public Map<Long, AgeInfo> findAgeInfo(Collection<Long> userIDs) throws SQLException {
+        Map<Long, AgeInfo> results = new LinkedHashMap<Long, AgeInfo>();
+        for (Long userID : userIDs) {
+            if (!results.containsKey(userID)) {
+                results.put(userID, findAgeInfo(userID.longValue()));
+            }
+        }
+        return results;
+    }
+    
     // Query Result Printing Functions
+    // EFFECTS:  print the results of each query to <writer>, streaming them through a buffer
+    //   rather than building the whole text first; the output is the same as formatting the
+    //   results with toString()
     public void printQuery0(Writer writer, BirthMonthInfo results) throws IOException {
-        String output = String.format("%sQuery 0%s%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 0);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery1(Writer writer, FirstNameInfo results) throws IOException {
-        String output = String.format("%sQuery 1%s%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 1);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery2(Writer writer, FakebookArrayList<UserInfo> results) throws IOException {
-        String output = String.format("%sQuery 2%s%nNumber of lonely users: %d%nLonely users are: %s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results.size(), results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 2);
+        out.write("Number of lonely users: ");
+        out.write(Integer.toString(results.size()));
+        out.write(FakebookOracleConstants.LineSeparator);
+        out.write("Lonely users are: ");
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery3(Writer writer, FakebookArrayList<UserInfo> results) throws IOException {
-        String output = String.format("%sQuery 3%s%nNumber of users who live away from home: %d%nThose users are: %s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results.size(), results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 3);
+        out.write("Number of users who live away from home: ");
+        out.write(Integer.toString(results.size()));
+        out.write(FakebookOracleConstants.LineSeparator);
+        out.write("Those users are: ");
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery4(Writer writer, FakebookArrayList<TaggedPhotoInfo> results) throws IOException {
-        String output = String.format("%sQuery 4%s%nThe following are the top %d photo(s) with the most tags:%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results.size(), results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 4);
+        out.write("The following are the top ");
+        out.write(Integer.toString(results.size()));
+        out.write(" photo(s) with the most tags:");
+        out.write(FakebookOracleConstants.LineSeparator);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery5(Writer writer, FakebookArrayList<MatchPair> results) throws IOException {
-        String output = String.format("%sQuery 5%s%nTop %d match(es):%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results.size(), results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 5);
+        out.write("Top ");
+        out.write(Integer.toString(results.size()));
+        out.write(" match(es):");
+        out.write(FakebookOracleConstants.LineSeparator);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery6(Writer writer, FakebookArrayList<UsersPair> results) throws IOException {
-        String output = String.format("%sQuery 6%s%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 6);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery7(Writer writer, EventStateInfo results) throws IOException {
-        String output = String.format("%sQuery 7%s%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 7);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery8(Writer writer, AgeInfo results) throws IOException {
-        String output = String.format("%sQuery 8%s%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 8);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
     }
     
     public void printQuery9(Writer writer, FakebookArrayList<SiblingInfo> results) throws IOException {
-        String output = String.format("%sQuery 9%s%n%d pair(s) of potential siblings:%n%s%n%n",
-            FakebookOracleConstants.PrintDecoration, FakebookOracleConstants.PrintDecoration, results.size(), results);
-        writer.write(output);
-        writer.flush();
+        Writer out = beginQuery(writer, 9);
+        out.write(Integer.toString(results.size()));
+        out.write(" pair(s) of potential siblings:");
+        out.write(FakebookOracleConstants.LineSeparator);
+        FakebookRenderable.append(out, results);
+        endQuery(out);
+    }
+    
+    // [Printing Helper Functions]
+    // EFFECTS:  beginQuery wraps <writer> in a buffer, unless it is buffered already, and
+    //   writes the banner of query <query> to it; endQuery ends the results with a blank
+    //   line and flushes them
+    private static Writer beginQuery(Writer writer, int query) throws IOException {
+        Writer out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        out.write(FakebookOracleConstants.PrintDecoration);
+        out.write("Query " + query);
+        out.write(FakebookOracleConstants.PrintDecoration);
+        out.write(FakebookOracleConstants.LineSeparator);
+        return out;
+    }
+    
+    private static void endQuery(Writer out) throws IOException {
+        out.write(FakebookOracleConstants.LineSeparator);
+        out.write(FakebookOracleConstants.LineSeparator);
+        out.flush();
     }
 }
@@ -1,20 +1,72 @@
 package project2;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class FakebookOracleMain {
     // Member Variables
     private static String username = "zyihong";                    // place your uniqname here
     private static String password = "123456";                    // place your Oracle/SQL*PLUS password here
+    private static String url = "jdbc:oracle:thin:@forktail.dsc.umich.edu:1521:COURSEDB";
+    private static int poolSize = 10;                             // most connections open at once
+    private static int workers = Integer.getInteger("fakebook.workers", 1);   // queries run at once
+    private static int warmup = Integer.getInteger("fakebook.warmup", 0);     // untimed runs per query
+    private static int iterations = Integer.getInteger("fakebook.iterations", 1);  // timed runs per query
+    private static String format = System.getProperty("fakebook.format", "text"); // text, csv, or json
+    private static FakebookJdbcMetrics metrics =                              // JDBC statistics, if recorded
+        Boolean.getBoolean("fakebook.metrics") ? new FakebookJdbcMetrics() : null;
+    private static String snapshot = System.getProperty("fakebook.snapshot", "");  // snapshot file, if any
+    private static boolean preload = Boolean.getBoolean("fakebook.preload");      // fill the user cache first
+    private static int fetchSize = Integer.getInteger("fakebook.fetchSize", 0);    // rows per round trip, if set
+    private static boolean streaming =                                        // forward-only cursors
+        Boolean.parseBoolean(System.getProperty("fakebook.streaming", "true"));
+    private static int cacheSize = Integer.getInteger("fakebook.cache", 0);       // cached results, if any
+    private static long cacheTtl = Long.getLong("fakebook.cacheTtl", 0L);         // milliseconds, 0 forever
+    private static CachingFakebookOracle cache;                               // the result cache, if used
     
     // [Main Function]
     // Expected Command Line Arguments:
     //  [0] either "all" or a digit 0-9, representing what query to run
     //  [1] either "p" or "t", indicating "print results" and "time queries" respectively
+    //  [2] optional: either "sql" (the default) or "memory", selecting StudentFakebookOracle
+    //      or InMemoryFakebookOracle to answer the queries, or "materialized", which is the
+    //      "memory" engine with Queries 0, 1, and 7 answered by MaterializedFakebookOracle
+    // Setting the system property fakebook.workers to more than 1 runs the selected queries
+    // concurrently on that many threads; results are still printed in query order
+    // In "t" mode, the system properties fakebook.warmup and fakebook.iterations set how many
+    // untimed and timed runs each query gets, and fakebook.format selects "text" (the
+    // default), "csv", or "json" output; with more than one worker, the text and JSON
+    // reports end with the wall-clock time of the whole run
+    // Setting the system property fakebook.metrics to true records the time spent executing
+    // and fetching every statement and prints a summary to standard error at the end
+    // Setting the system property fakebook.snapshot to a file makes the "memory" engines open
+    // that snapshot file instead of reading the tables; if the file does not exist yet, the
+    // tables are read once and saved to it. The bitmap index of Queries 2 and 3 is kept in
+    // the same place, in a file named after the snapshot file with ".bitmaps" appended
+    // Setting the system property fakebook.preload to true makes the "sql" engine read all
+    // users into its user cache in one scan before running any query
+    // The system property fakebook.fetchSize sets how many rows the "sql" engine fetches per
+    // round trip in every query (0, the default, keeps each query's own fetch size), and
+    // setting fakebook.streaming to false makes it use scroll-insensitive cursors, cached by
+    // the driver, instead of streaming forward-only ones
+    // Setting the system property fakebook.cache to a positive number puts a result cache of
+    // that many entries in front of the engine, each kept for fakebook.cacheTtl milliseconds
+    // (0, the default, keeps them until evicted), and prints its statistics to standard
+    // error at the end; a cached "sql" engine stops at the first failed query instead of
+    // printing the error and going on, so that no error is cached as an answer
     public static void main(String[] args) {
         int start = 0;                                // inclusive
         int stop = 10;                                // exclusive
@@ -23,58 +75,78 @@ public final class FakebookOracleMain {
             stop = start + 1;
         }
 
+        String engine = args.length > 2 ? args[2] : "sql";
+        if (!engine.equals("sql") && !engine.equals("memory") && !engine.equals("materialized")) {
+            System.err.println("Unknown engine: " + engine);
+            return;
+        }
+        if (!format.equals("text") && !format.equals("csv") && !format.equals("json")) {
+            System.err.println("Unknown format: " + format);
+            return;
+        }
+        if (warmup < 0 || iterations < 1) {
+            System.err.println("Need at least 0 warmup runs and 1 timed run per query");
+            return;
+        }
+        if (fetchSize < 0) {
+            System.err.println("Fetch size must be 0 or more: " + fetchSize);
+            return;
+        }
+        if (cacheSize < 0) {
+            System.err.println("Cache size must be 0 or more: " + cacheSize);
+            return;
+        }
+
         boolean print = args[1].equals("p");
-        if (print) {
-            query(start, stop);
+        if (workers > 1) {
+            runConcurrently(start, stop, engine, print);
+        }
+        else if (print) {
+            query(start, stop, engine);
         }
         else {
-            time(start, stop);
+            time(start, stop, engine);
+        }
+        
+        if (metrics != null) {
+            System.err.println(metrics);
+        }
+        if (cache != null) {
+            System.err.println(cache);
         }
     }
     
-    private static void query(int start, int stop) {
-        try (Connection oracleConnection = getConnection()) {
-            FakebookOracle db = new StudentFakebookOracle(oracleConnection);
+    private static void query(int start, int stop, String engine) {
+        try (FakebookConnectionPool pool = getConnectionPool()) {
+            FakebookOracle db = getOracle(pool, engine);
             OutputStreamWriter out = new OutputStreamWriter(System.out);
             
             for (int query = start; query < stop; query++) {
-                switch (query) {
-                    case 0:
-                        db.printQuery0(out, db.findMonthOfBirthInfo());
-                        break;
-                    case 1:
-                        db.printQuery1(out, db.findNameInfo());
-                        break;
-                    case 2:
-                        db.printQuery2(out, db.lonelyUsers());
-                        break;
-                    case 3:
-                        db.printQuery3(out, db.liveAwayFromHome());
-                        break;
-                    case 4:
-                        db.printQuery4(out, db.findPhotosWithMostTags(5));
-                        break;
-                    case 5:
-                        db.printQuery5(out, db.matchMaker(5, 2));
-                        break;
-                    case 6:
-                        db.printQuery6(out, db.suggestFriends(5));
-                        break;
-                    case 7:
-                        db.printQuery7(out, db.findEventStates());
-                        break;
-                    case 8:
-                        db.printQuery8(out, db.findAgeInfo(215L));
-                        break;
-                    case 9:
-                        db.printQuery9(out, db.findPotentialSiblings());
-                        break;
-                    default:
-                        break;
-                }
+                printQuery(db, query, out);
             }
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    // [Timing Function]
+    // EFFECTS:  runs each query <warmup> times untimed and then <iterations> times timed,
+    //           and prints a summary of the timed runs per query in <format>
+    private static void time(int start, int stop, String engine) {
+        try (FakebookConnectionPool pool = getConnectionPool()) {
+            OutputStreamWriter out = new OutputStreamWriter(System.out);
+            long beginTime = System.nanoTime();
+            FakebookOracle db = getOracle(pool, engine);
+            writeReportHead(out, format, engine, (System.nanoTime() - beginTime) / 1e9);
             
-            oracleConnection.close();
+            for (int query = start; query < stop; query++) {
+                writeReportLine(out, format, engine, measureQuery(db, query), query + 1 == stop);
+            }
+            writeReportTail(out, format, 0.0, -1.0);
         }
         catch (SQLException e) {
             e.printStackTrace();
@@ -84,57 +156,66 @@ public final class FakebookOracleMain {
         }
     }
     
-    private static void time(int start, int stop) {
-        long beginTime = 0L;
-        long endTime = 0L;
-        
-        try (Connection oracleConnection = getConnection()) {
-            FakebookOracle db = new StudentFakebookOracle(oracleConnection);
+    // [Concurrent Run Function]
+    // EFFECTS:  runs queries <start> through <stop> - 1 on <workers> threads at once, each on
+    //           its own pooled connection, and prints their results in query order, with
+    //           their times as text on standard error so that standard output stays
+    //           identical to a sequential run (see OrderedOutput for how the results of
+    //           queries that print out of turn are held back); if <print> is false, each
+    //           query instead gets <warmup> untimed and <iterations> timed runs, and the
+    //           report in <format> goes to standard output. Both reports end with the
+    //           wall-clock time of the whole run, except in CSV. A query that fails is
+    //           reported on standard error and left out of the report, and the others go on
+    private static void runConcurrently(int start, int stop, String engine, final boolean print) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers, getThreadFactory());
+        try (FakebookConnectionPool pool = getConnectionPool()) {
             OutputStreamWriter out = new OutputStreamWriter(System.out);
+            long setupBegin = System.nanoTime();
+            final FakebookOracle db = getOracle(pool, engine);
+            long runBegin = System.nanoTime();
             
+            final OrderedOutput results = new OrderedOutput(out, start, stop);
+            ArrayList<Future<FakebookQueryTimings>> runs = new ArrayList<Future<FakebookQueryTimings>>();
             for (int query = start; query < stop; query++) {
-                beginTime = System.currentTimeMillis();
-                switch (query) {
-                    case 0:
-                        db.findMonthOfBirthInfo();
-                        break;
-                    case 1:
-                        db.findNameInfo();
-                        break;
-                    case 2:
-                        db.lonelyUsers();
-                        break;
-                    case 3:
-                        db.liveAwayFromHome();
-                        break;
-                    case 4:
-                        db.findPhotosWithMostTags(5);
-                        break;
-                    case 5:
-                        db.matchMaker(5, 2);
-                        break;
-                    case 6:
-                        db.suggestFriends(5);
-                        break;
-                    case 7:
-                        db.findEventStates();
-                        break;
-                    case 8:
-                        db.findAgeInfo(215L);
-                        break;
-                    case 9:
-                        db.findPotentialSiblings();
-                        break;
-                    default:
-                        break;
-                }
-                endTime = System.currentTimeMillis();
-                
-                out.write(String.format("Query %d Time: %.3f%n", query, (endTime - beginTime) / 1000.0));
-                out.flush();
+                final int current = query;
+                runs.add(executor.submit(new Callable<FakebookQueryTimings>() {
+                    public FakebookQueryTimings call() throws SQLException, IOException {
+                        if (!print) {
+                            return measureQuery(db, current);
+                        }
+                        try {
+                            long begin = System.nanoTime();
+                            printQuery(db, current, results.writerFor(current));
+                            long[] nanos = { System.nanoTime() - begin };
+                            return new FakebookQueryTimings(current, nanos);
+                        }
+                        finally {
+                            // even after a failure, so that the queries after it are written
+                            results.finish(current);
+                        }
+                    }
+                }));
             }
             
-            oracleConnection.close();
+            Writer times = print ? new OutputStreamWriter(System.err) : out;
+            String timesFormat = print ? "text" : format;
+            writeReportHead(times, timesFormat, engine, (runBegin - setupBegin) / 1e9);
+            ArrayList<FakebookQueryTimings> finished = new ArrayList<FakebookQueryTimings>();
+            for (int idx = 0; idx < runs.size(); idx++) {
+                try {
+                    finished.add(runs.get(idx).get());
+                }
+                catch (ExecutionException e) {
+                    System.err.println("Query " + (start + idx) + " failed:");
+                    e.getCause().printStackTrace();
+                }
+            }
+            double total = 0.0;
+            for (int idx = 0; idx < finished.size(); idx++) {
+                writeReportLine(times, timesFormat, engine, finished.get(idx), idx + 1 == finished.size());
+                total += finished.get(idx).getPercentileMillis(50) / 1000.0;
+            }
+            writeReportTail(times, timesFormat, total, (System.nanoTime() - runBegin) / 1e9);
         }
         catch (SQLException e) {
             e.printStackTrace();
@@ -142,22 +223,323 @@ public final class FakebookOracleMain {
         catch (IOException e) {
             e.printStackTrace();
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    // [Report Functions]
+    // EFFECTS:  write the parts of a timing report in <format> to <out>: the head, with the
+    //           engine and its <setup> time in seconds, left out of a sequential text report
+    //           so that it reads as it always has; the line of one query, <last> if no
+    //           other follows it; and the tail, with the sum of the query times shown and the
+    //           wall-clock time of a concurrent run, in seconds, or a negative <wallClock>
+    //           after a sequential run
+    private static void writeReportHead(Writer out, String format, String engine, double setup) throws IOException {
+        if (format.equals("csv")) {
+            out.write(String.format("%s%n", FakebookQueryTimings.CsvHeader));
+        }
+        else if (format.equals("json")) {
+            out.write(String.format(Locale.ROOT, "{\"engine\": \"%s\", \"setupMillis\": %.3f, \"workers\": %d, " +
+                "\"warmup\": %d, \"iterations\": %d, \"queries\": [%n", engine, setup * 1000.0, workers, warmup, iterations));
+        }
+        else if (workers > 1) {
+            out.write(String.format("Engine: %s (setup %.3f), %d worker(s)%n", engine, setup, workers));
+        }
+        out.flush();
+    }
+    
+    private static void writeReportLine(Writer out, String format, String engine, FakebookQueryTimings timings,
+            boolean last) throws IOException {
+        if (format.equals("csv")) {
+            out.write(String.format("%s%n", timings.toCsv(engine, warmup)));
+        }
+        else if (format.equals("json")) {
+            out.write(String.format("  %s%s%n", timings.toJson(), last ? "" : ","));
+        }
+        else {
+            out.write(String.format("%s%n", timings.toText()));
+        }
+        out.flush();
+    }
+    
+    private static void writeReportTail(Writer out, String format, double total, double wallClock) throws IOException {
+        if (format.equals("json")) {
+            out.write(wallClock < 0 ? String.format("]}%n")
+                : String.format(Locale.ROOT, "], \"wallClockMillis\": %.3f}%n", wallClock * 1000.0));
+        }
+        else if (format.equals("text") && wallClock >= 0) {
+            out.write(String.format("Sum of Query Times: %.3f%nWall-clock Time: %.3f%n", total, wallClock));
+        }
+        out.flush();
     }
     
-    private static Connection getConnection() throws SQLException {
+    // [Query Functions]
+    // EFFECTS:  printQuery runs query <query> against <db> and prints its results to <out>;
+    //           timeQuery only runs it; measureQuery runs it <warmup> times untimed and then
+    //           <iterations> times timed, and returns the timed runs
+    private static void printQuery(FakebookOracle db, int query, Writer out) throws SQLException, IOException {
+        switch (query) {
+            case 0:
+                db.printQuery0(out, db.findMonthOfBirthInfo());
+                break;
+            case 1:
+                db.printQuery1(out, db.findNameInfo());
+                break;
+            case 2:
+                db.printQuery2(out, db.lonelyUsers());
+                break;
+            case 3:
+                db.printQuery3(out, db.liveAwayFromHome());
+                break;
+            case 4:
+                db.printQuery4(out, db.findPhotosWithMostTags(5));
+                break;
+            case 5:
+                db.printQuery5(out, db.matchMaker(5, 2));
+                break;
+            case 6:
+                db.printQuery6(out, db.suggestFriends(5));
+                break;
+            case 7:
+                db.printQuery7(out, db.findEventStates());
+                break;
+            case 8:
+                db.printQuery8(out, db.findAgeInfo(215L));
+                break;
+            case 9:
+                db.printQuery9(out, db.findPotentialSiblings());
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static FakebookQueryTimings measureQuery(FakebookOracle db, int query) throws SQLException {
+        for (int run = 0; run < warmup; run++) {
+            timeQuery(db, query);
+        }
+        long[] nanos = new long[iterations];
+        for (int run = 0; run < iterations; run++) {
+            long beginTime = System.nanoTime();
+            timeQuery(db, query);
+            nanos[run] = System.nanoTime() - beginTime;
+        }
+        return new FakebookQueryTimings(query, nanos);
+    }
+    
+    private static void timeQuery(FakebookOracle db, int query) throws SQLException {
+        switch (query) {
+            case 0:
+                db.findMonthOfBirthInfo();
+                break;
+            case 1:
+                db.findNameInfo();
+                break;
+            case 2:
+                db.lonelyUsers();
+                break;
+            case 3:
+                db.liveAwayFromHome();
+                break;
+            case 4:
+                db.findPhotosWithMostTags(5);
+                break;
+            case 5:
+                db.matchMaker(5, 2);
+                break;
+            case 6:
+                db.suggestFriends(5);
+                break;
+            case 7:
+                db.findEventStates();
+                break;
+            case 8:
+                db.findAgeInfo(215L);
+                break;
+            case 9:
+                db.findPotentialSiblings();
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static FakebookConnectionPool getConnectionPool() {
+        return new FakebookConnectionPool(url, username, password, Math.max(poolSize, workers));
+    }
+    
+    // EFFECTS:  returns the oracle for <engine>, behind a result cache if <cacheSize> is set
+    private static FakebookOracle getOracle(FakebookConnectionPool pool, String engine) throws SQLException {
+        FakebookOracle oracle = getEngine(pool, engine);
+        if (cacheSize > 0) {
+            cache = new CachingFakebookOracle(oracle, cacheSize, cacheTtl);
+            return cache;
+        }
+        return oracle;
+    }
+    
+    // EFFECTS:  returns the engine <engine>; the "memory" and "materialized" engines first
+    //           open the snapshot file, if one is set and exists, or else load a snapshot of
+    //           all tables through one connection from <pool> and save it to the file, if
+    //           set; the "sql" engine throws its SQLExceptions when its results are to be
+    //           cached
+    private static FakebookOracle getEngine(FakebookConnectionPool pool, String engine) throws SQLException {
+        if (!engine.equals("sql")) {
+            File file = snapshot.isEmpty() ? null : new File(snapshot);
+            try {
+                FakebookSnapshot loaded;
+                if (file != null && file.exists()) {
+                    loaded = FakebookSnapshotFile.open(file, false);
+                }
+                else {
+                    try (Connection connection = pool.borrow()) {
+                        loaded = FakebookSnapshot.load(
+                            metrics == null ? connection : metrics.instrument(connection, "FakebookSnapshot.load"));
+                    }
+                    if (file != null) {
+                        FakebookSnapshotFile.write(loaded, file);
+                    }
+                }
+                FakebookOracle memory = getMemoryOracle(loaded, file);
+                if (engine.equals("materialized")) {
+                    return new MaterializedFakebookOracle(memory, FakebookAggregates.fromSnapshot(loaded));
+                }
+                return memory;
+            }
+            catch (IOException e) {
+                throw new SQLException("Cannot use snapshot file " + snapshot + ": " + e.getMessage(), e);
+            }
+        }
+        StudentFakebookOracle oracle = new StudentFakebookOracle(pool);
+        oracle.setFetchSize(fetchSize);
+        oracle.setStreaming(streaming);
+        oracle.setPropagateErrors(cacheSize > 0);
+        oracle.setMetrics(metrics);
+        if (preload) {
+            oracle.preloadUsers();
+        }
+        return oracle;
+    }
+    
+    // EFFECTS:  returns the "memory" engine over <loaded>; when <file> is set, its bitmap
+    //           index is read from next to <file>, or built and saved there if it is
+    //           missing, damaged, or was saved for a snapshot file with another checksum
+    private static FakebookOracle getMemoryOracle(FakebookSnapshot loaded, File file) throws IOException {
+        if (file == null) {
+            return new InMemoryFakebookOracle(loaded);
+        }
+        File bitmapFile = FakebookBitmapIndex.fileFor(file);
+        int checksum = FakebookSnapshotFile.checksum(file);
+        FakebookBitmapIndex bitmaps = null;
+        if (bitmapFile.exists()) {
+            try {
+                bitmaps = FakebookBitmapIndex.read(bitmapFile, checksum);
+            }
+            catch (IOException e) {
+                bitmaps = null;
+            }
+        }
+        if (bitmaps == null) {
+            bitmaps = FakebookBitmapIndex.fromSnapshot(loaded);
+            bitmaps.write(bitmapFile, checksum);
+        }
+        return new InMemoryFakebookOracle(loaded, bitmaps);
+    }
+    
+    // EFFECTS:  returns a factory for virtual threads when the running JVM has them (Java 21
+    //           and later), and for daemon platform threads otherwise; queries spend most of
+    //           their time waiting on the database, which is what virtual threads are for
+    private static ThreadFactory getThreadFactory() {
         try {
-            Class.forName("oracle.jdbc.driver.OracleDriver").newInstance();
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder").getMethod("name", String.class, long.class)
+                .invoke(builder, "fakebook-query-", 0L);
+            return (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
         }
-        catch (InstantiationException e) {
-            e.printStackTrace();
+        catch (Exception e) {
+            final AtomicInteger created = new AtomicInteger();
+            return new ThreadFactory() {
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "fakebook-query-" + created.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
         }
-        catch (IllegalAccessException e) {
-            e.printStackTrace();
+    }
+    
+    /*
+        An OrderedOutput lets the queries <first> through <stop> - 1 of a concurrent run print
+        at the same time while their results still reach <out> in query order. The query
+        whose turn it is writes straight through to <out>, so its results are streamed as
+        they are rendered; a query that prints ahead of its turn is held in memory until
+        its turn comes. finish() passes the turn on, first writing out whatever the next
+        queries have printed so far.
+    */
+    private static final class OrderedOutput {
+        OrderedOutput(Writer out, int first, int stop) {
+            this.out = out;
+            this.first = first;
+            turn = first;
+            held = new StringBuilder[stop - first];
+            finished = new boolean[stop - first];
+            for (int idx = 0; idx < held.length; idx++) {
+                held[idx] = new StringBuilder();
+            }
         }
-        catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        
+        // EFFECTS:  returns the writer that query <query> prints its results to
+        Writer writerFor(final int query) {
+            return new Writer() {
+                public void write(char[] chars, int offset, int length) throws IOException {
+                    synchronized (OrderedOutput.this) {
+                        if (query == turn) {
+                            out.write(chars, offset, length);
+                        }
+                        else {
+                            held[query - first].append(chars, offset, length);
+                        }
+                    }
+                }
+                
+                public void flush() throws IOException {
+                    synchronized (OrderedOutput.this) {
+                        if (query == turn) {
+                            out.flush();
+                        }
+                    }
+                }
+                
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        
+        // MODIFIES: this, <out>
+        // EFFECTS:  records that <query> has printed all of its results, and if it is its
+        //           turn, passes the turn to the first query that has not yet finished
+        synchronized void finish(int query) throws IOException {
+            finished[query - first] = true;
+            while (turn - first < held.length && finished[turn - first]) {
+                held[turn - first] = null;
+                turn++;
+                if (turn - first < held.length) {
+                    out.write(held[turn - first].toString());
+                    held[turn - first].setLength(0);
+                }
+            }
+            out.flush();
         }
         
-        return DriverManager.getConnection("jdbc:oracle:thin:@forktail.dsc.umich.edu:1521:COURSEDB", username, password);
+        private final Writer out;
+        private final int first;
+        private int turn;                               // the query that writes through
+        private final StringBuilder[] held;             // results printed ahead of turn
+        private final boolean[] finished;
     }
 }
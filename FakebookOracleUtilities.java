@@ -1,13 +1,17 @@
 package project2;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
     The FakebookArrayList class is an ArrayList that allows customization of the toString
     function, specifically the inter-item delimiter and the removal of leading/trailing
     brackets.
 */
-final class FakebookArrayList<T> extends ArrayList<T> {
+final class FakebookArrayList<T> extends ArrayList<T> implements FakebookRenderable {
     // [Constructor]
     public FakebookArrayList(String delim) {
         super();
@@ -19,22 +23,493 @@ final class FakebookArrayList<T> extends ArrayList<T> {
     // EFFECTS:  constructs a string representation of the elements contained in this
     //   FakebookArrayList instance, each one delimited by <delimiter>
     public String toString() {
-        String result = "";
-        
+        return FakebookRenderable.render(this);
+    }
+    
+    // [Render Function]
+    // EFFECTS:  appends the elements contained in this FakebookArrayList instance to <out>,
+    //   each one delimited by <delimiter>, or "[]" if that would append nothing; elements
+    //   are streamed one at a time, so the time taken is linear in the length of the output
+    public void appendTo(Appendable out) throws IOException {
         int num = size();
+        if (num == 0) {
+            out.append("[]");
+            return;
+        }
+        if (num == 1 && !(get(0) instanceof FakebookRenderable)) {
+            // a lone element may print as nothing, and only then is the list shown as "[]"
+            String only = String.valueOf(get(0));
+            out.append(only.isEmpty() ? "[]" : only);
+            return;
+        }
+        
         for (int idx = 0; idx < num; idx++) {
             if (idx != 0) {
-                result += delimiter;
+                out.append(delimiter);
             }
-            result += get(idx);
+            FakebookRenderable.append(out, get(idx));
         }
-
-		if (result.equals("")) {
-			return "[]";
-		}
-	    return result;
     }
     
     // Member Variables
     private String delimiter;
 }
+
+/*
+    The FakebookRenderable interface is implemented by the result classes that can write
+    their string representation straight to an Appendable, such as a Writer, instead of
+    first building it as a String. toString() and appendTo() always produce the same text.
+*/
+interface FakebookRenderable {
+    // [Render Function]
+    // EFFECTS:  appends the string representation of this instance to <out>
+    void appendTo(Appendable out) throws IOException;
+    
+    // [Render Helper Functions]
+    // EFFECTS:  render returns the string representation of <item>; append appends the
+    //   string representation of <item> to <out>, streaming it if <item> is renderable
+    static String render(FakebookRenderable item) {
+        StringBuilder result = new StringBuilder();
+        try {
+            item.appendTo(result);
+        }
+        catch (IOException e) {
+            throw new AssertionError(e);            // StringBuilder never throws
+        }
+        return result.toString();
+    }
+    
+    static void append(Appendable out, Object item) throws IOException {
+        if (item instanceof FakebookRenderable) {
+            ((FakebookRenderable)item).appendTo(out);
+        }
+        else {
+            out.append(String.valueOf(item));
+        }
+    }
+}
+
+/*
+    The FakebookIntIntMap class is an open-addressing hash map from int keys to int values
+    that keeps both in primitive arrays, so that indexes over snapshot columns (user ID to
+    row, city ID to state, ...) do not box every key. Integer.MIN_VALUE, which snapshots use
+    for NULL, cannot be used as a key.
+*/
+final class FakebookIntIntMap {
+    // [Constructor]
+    // EFFECTS:  creates an empty map sized to hold <expected> keys without growing
+    public FakebookIntIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, Empty);
+    }
+    
+    // [Get Function]
+    // EFFECTS:  returns the value mapped to <key>, or <missing> if there is none
+    public int get(int key, int missing) {
+        int slot = find(key);
+        return keys[slot] == Empty ? missing : values[slot];
+    }
+    
+    public boolean containsKey(int key) {
+        return keys[find(key)] != Empty;
+    }
+    
+    // [Put Function]
+    // REQUIRES: <key> is not Integer.MIN_VALUE
+    // MODIFIES: this
+    // EFFECTS:  maps <key> to <value>, replacing any previous value
+    public void put(int key, int value) {
+        int slot = insert(key);
+        values[slot] = value;
+    }
+    
+    // [Add Function]
+    // REQUIRES: <key> is not Integer.MIN_VALUE
+    // MODIFIES: this
+    // EFFECTS:  adds <delta> to the value mapped to <key> (0 if absent) and returns the sum
+    public int add(int key, int delta) {
+        int slot = insert(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // [Helper Functions]
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != Empty && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private int insert(int key) {
+        if (key == Empty) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE cannot be used as a key");
+        }
+        int slot = find(key);
+        if (keys[slot] == Empty) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+    
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, Empty);
+        for (int idx = 0; idx < oldKeys.length; idx++) {
+            if (oldKeys[idx] != Empty) {
+                int slot = find(oldKeys[idx]);
+                keys[slot] = oldKeys[idx];
+                values[slot] = oldValues[idx];
+            }
+        }
+    }
+    
+    // EFFECTS:  scrambles the bits of <key> so that sequential IDs spread over the table
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    // Member Variables
+    private static final int Empty = Integer.MIN_VALUE;
+    private int[] keys;
+    private int[] values;
+    private int size;
+}
+
+/*
+    The FakebookLongIntMap class is the FakebookIntIntMap for long keys, such as pairs of
+    users packed into one long, so that counting pairs boxes neither keys nor counts.
+    Long.MIN_VALUE cannot be used as a key. The slots of the table can be walked with
+    capacity(), isUsed(), keyAt(), and valueAt().
+*/
+final class FakebookLongIntMap {
+    // [Constructor]
+    // EFFECTS:  creates an empty map sized to hold <expected> keys without growing
+    public FakebookLongIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, Empty);
+    }
+    
+    // [Get Function]
+    // EFFECTS:  returns the value mapped to <key>, or <missing> if there is none
+    public int get(long key, int missing) {
+        int slot = find(key);
+        return keys[slot] == Empty ? missing : values[slot];
+    }
+    
+    // [Add Function]
+    // REQUIRES: <key> is not Long.MIN_VALUE
+    // MODIFIES: this
+    // EFFECTS:  adds <delta> to the value mapped to <key> (0 if absent) and returns the sum
+    public int add(long key, int delta) {
+        if (key == Empty) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        }
+        int slot = find(key);
+        if (keys[slot] == Empty) {
+            if ((size + 1) * 2L > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // [Slot Functions]
+    // REQUIRES: 0 <= <slot> < capacity(); keyAt and valueAt also need isUsed(<slot>)
+    // EFFECTS:  return the number of slots, whether <slot> holds a key, and its key and value
+    public int capacity() {
+        return keys.length;
+    }
+    
+    public boolean isUsed(int slot) {
+        return keys[slot] != Empty;
+    }
+    
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+    
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+    
+    // [Helper Functions]
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != Empty && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, Empty);
+        for (int idx = 0; idx < oldKeys.length; idx++) {
+            if (oldKeys[idx] != Empty) {
+                int slot = find(oldKeys[idx]);
+                keys[slot] = oldKeys[idx];
+                values[slot] = oldValues[idx];
+            }
+        }
+    }
+    
+    // EFFECTS:  scrambles the bits of <key> so that nearby keys spread over the table
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+    
+    // Member Variables
+    private static final long Empty = Long.MIN_VALUE;
+    private long[] keys;
+    private int[] values;
+    private int size;
+}
+
+/*
+    The FakebookPairHeap class keeps the best <capacity> of the (count, first, second) triples
+    offered to it, where a higher count is better and equal counts prefer the lower first and
+    then the lower second value; this is the order in which Queries 5 and 6 rank user pairs.
+    The worst triple kept sits at the root, so offering a triple costs O(log capacity) and
+    nothing is kept beyond the capacity. Heaps filled in parallel can be merged with addAll.
+*/
+final class FakebookPairHeap {
+    // [Constructor]
+    // EFFECTS:  creates an empty heap that keeps at most <capacity> triples (none if
+    //           <capacity> is not positive)
+    public FakebookPairHeap(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        int initial = Math.min(this.capacity, 64);
+        counts = new int[initial];
+        firsts = new int[initial];
+        seconds = new int[initial];
+    }
+    
+    // [Offer Function]
+    // REQUIRES: sort() has not been called
+    // MODIFIES: this
+    // EFFECTS:  keeps the triple if it is among the best <capacity> offered so far
+    public void offer(int count, int first, int second) {
+        if (size < capacity) {
+            if (size == counts.length) {
+                int grown = Math.min(capacity, size * 2);
+                counts = Arrays.copyOf(counts, grown);
+                firsts = Arrays.copyOf(firsts, grown);
+                seconds = Arrays.copyOf(seconds, grown);
+            }
+            set(size, count, first, second);
+            siftUp(size++);
+        }
+        else if (size > 0 && compare(count, first, second, 0) > 0) {
+            set(0, count, first, second);
+            siftDown(0, size);
+        }
+    }
+    
+    // [Merge Function]
+    // REQUIRES: sort() has not been called on this heap
+    // MODIFIES: this
+    // EFFECTS:  offers every triple kept by <other>
+    public void addAll(FakebookPairHeap other) {
+        for (int idx = 0; idx < other.size; idx++) {
+            offer(other.counts[idx], other.firsts[idx], other.seconds[idx]);
+        }
+    }
+    
+    // [Sort Function]
+    // MODIFIES: this
+    // EFFECTS:  puts the kept triples in ranking order, best first; afterwards count(i),
+    //           first(i), and second(i) describe the i-th best triple and nothing more
+    //           may be offered
+    public void sort() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int count(int idx) {
+        return counts[idx];
+    }
+    
+    public int first(int idx) {
+        return firsts[idx];
+    }
+    
+    public int second(int idx) {
+        return seconds[idx];
+    }
+    
+    // [Helper Functions]
+    // EFFECTS:  returns a positive number if the given triple ranks better than the one at
+    //           <idx>, a negative number if it ranks worse, and 0 if they are equal
+    private int compare(int count, int first, int second, int idx) {
+        if (count != counts[idx]) {
+            return count > counts[idx] ? 1 : -1;
+        }
+        if (first != firsts[idx]) {
+            return first < firsts[idx] ? 1 : -1;
+        }
+        return second == seconds[idx] ? 0 : (second < seconds[idx] ? 1 : -1);
+    }
+    
+    private boolean worse(int idx1, int idx2) {
+        return compare(counts[idx1], firsts[idx1], seconds[idx1], idx2) < 0;
+    }
+    
+    private void siftUp(int idx) {
+        while (idx > 0) {
+            int parent = (idx - 1) / 2;
+            if (!worse(idx, parent)) {
+                return;
+            }
+            swap(idx, parent);
+            idx = parent;
+        }
+    }
+    
+    private void siftDown(int idx, int end) {
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && worse(child + 1, child)) {
+                child++;
+            }
+            if (!worse(child, idx)) {
+                return;
+            }
+            swap(idx, child);
+            idx = child;
+        }
+    }
+    
+    private void set(int idx, int count, int first, int second) {
+        counts[idx] = count;
+        firsts[idx] = first;
+        seconds[idx] = second;
+    }
+    
+    private void swap(int idx1, int idx2) {
+        int count = counts[idx1];
+        int first = firsts[idx1];
+        int second = seconds[idx1];
+        set(idx1, counts[idx2], firsts[idx2], seconds[idx2]);
+        set(idx2, count, first, second);
+    }
+    
+    // Member Variables
+    private final int capacity;
+    private int[] counts;
+    private int[] firsts;
+    private int[] seconds;
+    private int size;
+}
+
+/*
+    The FakebookNameDictionary class gives every distinct first or last name a dense int
+    code, so that a UserInfo can hold two ints instead of two String objects; names repeat
+    heavily across users, so each distinct name is stored once no matter how many query
+    results mention it. Each oracle owns its dictionary, which lives as long as the oracle
+    and so holds at most the distinct names of the data that oracle reads. Codes are never
+    reused or removed. Names already known are encoded without locking; a new name is
+    appended under a lock, and the array is published again before its code is, so any
+    thread that sees the code also sees the name.
+*/
+final class FakebookNameDictionary {
+    // [Constructor]
+    public FakebookNameDictionary() {
+        codes = new ConcurrentHashMap<String, Integer>();
+        names = new String[64];
+    }
+    
+    // [Encode Function]
+    // MODIFIES: this
+    // EFFECTS:  returns the code of <name>, assigning the next free code if it is new;
+    //           returns Null for null
+    public int encode(String name) {
+        if (name == null) {
+            return Null;
+        }
+        Integer code = codes.get(name);
+        return code != null ? code : add(name);
+    }
+    
+    // [Decode Function]
+    // REQUIRES: <code> was returned by encode
+    // EFFECTS:  returns the name with code <code> (null for Null)
+    public String decode(int code) {
+        return code == Null ? null : names[code];
+    }
+    
+    public int size() {
+        return codes.size();
+    }
+    
+    // EFFECTS:  assigns <name> the next free code unless another thread already has, and
+    //           returns its code
+    private synchronized int add(String name) {
+        Integer code = codes.get(name);
+        if (code == null) {
+            String[] grown = names;
+            if (size == grown.length) {
+                grown = Arrays.copyOf(grown, size * 2);
+            }
+            grown[size] = name;
+            names = grown;
+            code = size++;
+            codes.put(name, code);
+        }
+        return code;
+    }
+    
+    // Member Variables
+    public static final int Null = -1;
+    
+    private final ConcurrentHashMap<String, Integer> codes;
+    private volatile String[] names;                    // written again after every add
+    private int size;                                   // guarded by this
+}
@@ -0,0 +1,95 @@
+package project2;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+    The FakebookQueryTimings class summarizes the measured runs of one query: the mean,
+    minimum, and maximum time, nearest-rank percentiles, and throughput, and formats them as
+    a line of text, a CSV record, or a JSON object. Times are taken with System.nanoTime()
+    by the caller; warmup runs are not part of the samples.
+*/
+final class FakebookQueryTimings {
+    // [Constructor]
+    // REQUIRES: <nanos> is not empty
+    // EFFECTS:  summarizes the run times <nanos>, in nanoseconds, of query <query>
+    public FakebookQueryTimings(int query, long[] nanos) {
+        this.query = query;
+        samples = nanos.clone();
+        Arrays.sort(samples);
+        for (long sample : samples) {
+            total += sample;
+        }
+    }
+
+    // [Accessors]
+    // EFFECTS:  return the query number, the number of measured runs, and statistics of
+    //           their times in milliseconds; throughput is in runs per second
+    public int getQuery() {
+        return query;
+    }
+
+    public int getIterations() {
+        return samples.length;
+    }
+
+    public double getMeanMillis() {
+        return total / 1e6 / samples.length;
+    }
+
+    public double getMinMillis() {
+        return samples[0] / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return samples[samples.length - 1] / 1e6;
+    }
+
+    // REQUIRES: 0 < <percentile> <= 100
+    // EFFECTS:  returns the smallest time that at least <percentile> percent of the runs
+    //           did not exceed
+    public double getPercentileMillis(double percentile) {
+        int rank = (int)Math.ceil(percentile / 100.0 * samples.length);
+        return samples[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    public double getThroughput() {
+        return total == 0 ? 0.0 : samples.length * 1e9 / total;
+    }
+
+    // [Formatting Functions]
+    // EFFECTS:  toText returns "Query <n> Time: <p50>" in seconds, as the t mode has always
+    //           printed, followed by the spread when there was more than one run; toCsv
+    //           returns one record under CsvHeader; toJson returns one JSON object
+    public String toText() {
+        String line = String.format("Query %d Time: %.3f", query, getPercentileMillis(50) / 1000.0);
+        if (samples.length > 1) {
+            line += String.format(" (p90 %.3f, p99 %.3f, max %.3f, %.1f queries/s over %d runs)",
+                getPercentileMillis(90) / 1000.0, getPercentileMillis(99) / 1000.0, getMaxMillis() / 1000.0,
+                getThroughput(), samples.length);
+        }
+        return line;
+    }
+
+    public String toCsv(String engine, int warmup) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+            engine, query, warmup, samples.length, getMeanMillis(), getMinMillis(), getPercentileMillis(50),
+            getPercentileMillis(90), getPercentileMillis(99), getMaxMillis(), getThroughput());
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"query\": %d, \"iterations\": %d, \"meanMillis\": %.3f, " +
+            "\"minMillis\": %.3f, \"p50Millis\": %.3f, \"p90Millis\": %.3f, \"p99Millis\": %.3f, " +
+            "\"maxMillis\": %.3f, \"throughput\": %.3f}",
+            query, samples.length, getMeanMillis(), getMinMillis(), getPercentileMillis(50),
+            getPercentileMillis(90), getPercentileMillis(99), getMaxMillis(), getThroughput());
+    }
+
+    // Member Variables
+    public static final String CsvHeader =
+        "engine,query,warmup,iterations,mean_ms,min_ms,p50_ms,p90_ms,p99_ms,max_ms,throughput_per_s";
+
+    private final int query;
+    private final long[] samples;         // run times in nanoseconds, ascending
+    private long total;
+}
@@ -0,0 +1,189 @@
+package project2;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+    The FakebookSiblingJoin class finds the potential siblings of Query 9 with a partitioned
+    band join on a ForkJoinPool. Users with a last name, a birth year, and a hometown are
+    partitioned on (last name, hometown), since siblings must share both. Each partition is
+    sorted by birth year, and a window slides over it that holds the users born less than
+    ten years after the current one; every pair in the window is looked up in the friend
+    graph, whose sorted neighbor lists serve as the edge set. Partitions are handed out to
+    the workers in ranges, and the pairs found are sorted into user order at the end.
+*/
+final class FakebookSiblingJoin {
+    // [Constructor]
+    // REQUIRES: <lastNames>, <years>, and <hometowns> hold the last name code, birth year,
+    //           and hometown city ID of every vertex of <graph>, or FakebookSnapshot.NULL
+    // EFFECTS:  creates a join over the users of <graph> that runs on the common ForkJoinPool
+    public FakebookSiblingJoin(FakebookFriendGraph graph, int[] lastNames, int[] years, int[] hometowns) {
+        this(graph, lastNames, years, hometowns, ForkJoinPool.commonPool());
+    }
+
+    // [Constructor]
+    // EFFECTS:  creates a join as above that runs on <pool>
+    public FakebookSiblingJoin(FakebookFriendGraph graph, int[] lastNames, int[] years, int[] hometowns,
+            ForkJoinPool pool) {
+        this.graph = graph;
+        this.lastNames = lastNames;
+        this.years = years;
+        this.hometowns = hometowns;
+        this.pool = pool;
+    }
+
+    // [Join Function]
+    // EFFECTS:  returns every pair of vertexes (first < second) that are friends, have the
+    //           same last name and hometown, and were born less than ten years apart, as
+    //           (first << 32 | second) in ascending order
+    public long[] join() {
+        // partition keys of the users that can have siblings, and their distinct values
+        int vertexes = graph.getVertexCount();
+        long[] keys = new long[vertexes];
+        int eligible = 0;
+        for (int vertex = 0; vertex < vertexes; vertex++) {
+            if (lastNames[vertex] != FakebookSnapshot.NULL && years[vertex] != FakebookSnapshot.NULL
+                    && hometowns[vertex] != FakebookSnapshot.NULL) {
+                keys[eligible++] = key(vertex);
+            }
+        }
+        long[] partitions = Arrays.copyOf(keys, eligible);
+        Arrays.sort(partitions);
+        int partitionCount = 0;
+        for (int idx = 0; idx < eligible; idx++) {
+            if (idx == 0 || partitions[idx] != partitions[idx - 1]) {
+                partitions[partitionCount++] = partitions[idx];
+            }
+        }
+
+        // members of every partition, laid out one partition after the other
+        int[] partitionOf = new int[vertexes];
+        int[] starts = new int[partitionCount + 1];
+        for (int vertex = 0; vertex < vertexes; vertex++) {
+            partitionOf[vertex] = -1;
+            if (lastNames[vertex] != FakebookSnapshot.NULL && years[vertex] != FakebookSnapshot.NULL
+                    && hometowns[vertex] != FakebookSnapshot.NULL) {
+                partitionOf[vertex] = Arrays.binarySearch(partitions, 0, partitionCount, key(vertex));
+                starts[partitionOf[vertex] + 1]++;
+            }
+        }
+        for (int partition = 0; partition < partitionCount; partition++) {
+            starts[partition + 1] += starts[partition];
+        }
+        long[] members = new long[eligible];
+        int[] next = Arrays.copyOf(starts, partitionCount);
+        for (int vertex = 0; vertex < vertexes; vertex++) {
+            if (partitionOf[vertex] >= 0) {
+                members[next[partitionOf[vertex]]++] = ((long)years[vertex] << 32) | vertex;
+            }
+        }
+
+        if (partitionCount == 0) {
+            return new long[0];
+        }
+        int grain = Math.max(64, partitionCount / (pool.getParallelism() * 16));
+        Pairs pairs = pool.invoke(new RangeTask(0, partitionCount, grain, starts, members));
+        long[] result = Arrays.copyOf(pairs.pairs, pairs.size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // [Band Function]
+    // MODIFIES: <members>, <pairs>
+    // EFFECTS:  sorts the members of partitions [<begin>, <end>) by birth year and adds
+    //           the sibling pairs among them to <pairs>
+    private void band(int begin, int end, int[] starts, long[] members, Pairs pairs) {
+        for (int partition = begin; partition < end; partition++) {
+            int from = starts[partition];
+            int to = starts[partition + 1];
+            if (to - from < 2) {
+                continue;
+            }
+            // (year << 32 | vertex) sorts by year, then vertex
+            Arrays.sort(members, from, to);
+            for (int i = from; i < to; i++) {
+                long year = members[i] >> 32;
+                int vertex1 = (int)members[i];
+                for (int j = i + 1; j < to && (members[j] >> 32) - year < 10; j++) {
+                    int vertex2 = (int)members[j];
+                    if (graph.areFriends(vertex1, vertex2)) {
+                        pairs.add(Math.min(vertex1, vertex2), Math.max(vertex1, vertex2));
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        Pairs is a growable array of vertex pairs packed as (first << 32 | second).
+    */
+    private static final class Pairs {
+        void add(int first, int second) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(16, size * 2));
+            }
+            pairs[size++] = ((long)first << 32) | second;
+        }
+
+        void addAll(Pairs other) {
+            if (size + other.size > pairs.length) {
+                pairs = Arrays.copyOf(pairs, size + other.size);
+            }
+            System.arraycopy(other.pairs, 0, pairs, size, other.size);
+            size += other.size;
+        }
+
+        long[] pairs = new long[0];
+        int size;
+    }
+
+    /*
+        A RangeTask joins the partitions in [begin, end), splitting the range in halves until
+        it is no longer than the grain, and returns the pairs found.
+    */
+    private final class RangeTask extends RecursiveTask<Pairs> {
+        RangeTask(int begin, int end, int grain, int[] starts, long[] members) {
+            this.begin = begin;
+            this.end = end;
+            this.grain = grain;
+            this.starts = starts;
+            this.members = members;
+        }
+
+        protected Pairs compute() {
+            if (end - begin <= grain) {
+                Pairs pairs = new Pairs();
+                band(begin, end, starts, members, pairs);
+                return pairs;
+            }
+
+            int middle = (begin + end) >>> 1;
+            RangeTask upper = new RangeTask(middle, end, grain, starts, members);
+            upper.fork();
+            Pairs pairs = new RangeTask(begin, middle, grain, starts, members).compute();
+            pairs.addAll(upper.join());
+            return pairs;
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final int begin;
+        private final int end;
+        private final int grain;
+        private final int[] starts;
+        private final long[] members;
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  returns the partition key of <vertex>: its last name and hometown
+    private long key(int vertex) {
+        return ((long)lastNames[vertex] << 32) | (hometowns[vertex] & 0xFFFFFFFFL);
+    }
+
+    // Member Variables
+    private final FakebookFriendGraph graph;
+    private final int[] lastNames;                      // per vertex, FakebookSnapshot.NULL if none
+    private final int[] years;
+    private final int[] hometowns;
+    private final ForkJoinPool pool;
+}
@@ -0,0 +1,387 @@
+package project2;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+    The FakebookSnapshot class holds a read-only copy of the 11 Fakebook tables in compact
+    columnar form: every column is a sequence of ints, and every text column stores codes
+    into a single string dictionary shared by all tables. NULL is stored as FakebookSnapshot.NULL
+    in both kinds of column. Only the columns that the Fakebook queries look at are kept.
+    A snapshot is loaded once (e.g. with FakebookSnapshot.load, or FakebookSnapshotFile.open)
+    and can then be shared by any number of readers.
+*/
+final class FakebookSnapshot {
+    // NULL Marker
+    public static final int NULL = Integer.MIN_VALUE;
+
+    // Table Positions
+    public static final int Users = 0;
+    public static final int Cities = 1;
+    public static final int Friends = 2;
+    public static final int CurrentCities = 3;
+    public static final int HometownCities = 4;
+    public static final int Programs = 5;
+    public static final int Education = 6;
+    public static final int Events = 7;
+    public static final int Albums = 8;
+    public static final int Photos = 9;
+    public static final int Tags = 10;
+    public static final int TableCount = 11;
+
+    // Column Positions
+    public static final int UserID = 0;                 // Users, CurrentCities, HometownCities, Education
+    public static final int FirstName = 1;
+    public static final int LastName = 2;
+    public static final int YearOfBirth = 3;
+    public static final int MonthOfBirth = 4;
+    public static final int DayOfBirth = 5;
+    public static final int Gender = 6;
+    public static final int CityID = 0;                 // Cities
+    public static final int CityName = 1;
+    public static final int StateName = 2;
+    public static final int CountryName = 3;
+    public static final int User1ID = 0;                // Friends
+    public static final int User2ID = 1;
+    public static final int CurrentCityID = 1;          // CurrentCities
+    public static final int HometownCityID = 1;         // HometownCities
+    public static final int ProgramID = 0;              // Programs
+    public static final int Institution = 1;
+    public static final int Concentration = 2;
+    public static final int Degree = 3;
+    public static final int EducationProgramID = 1;     // Education
+    public static final int ProgramYear = 2;
+    public static final int EventID = 0;                // Events
+    public static final int EventCreatorID = 1;
+    public static final int EventName = 2;
+    public static final int EventCityID = 3;
+    public static final int AlbumID = 0;                // Albums
+    public static final int AlbumOwnerID = 1;
+    public static final int AlbumName = 2;
+    public static final int CoverPhotoID = 3;
+    public static final int PhotoID = 0;                // Photos
+    public static final int PhotoAlbumID = 1;
+    public static final int PhotoLink = 2;
+    public static final int TagPhotoID = 0;             // Tags
+    public static final int TagSubjectID = 1;
+
+    // [Constructor]
+    // REQUIRES: <tables> holds one table per table position, laid out as described by
+    //           columnNames() and isText(); every text code in them is defined by <dictionary>
+    public FakebookSnapshot(FakebookTable[] tables, FakebookStringDictionary dictionary) {
+        this.tables = tables;
+        this.dictionary = dictionary;
+    }
+
+    // [Load Function]
+    // REQUIRES: <connection> is a valid JDBC connection to the Fakebook schema
+    // EFFECTS:  reads every table once, front to back, and returns the resulting snapshot
+    public static FakebookSnapshot load(Connection connection) throws SQLException {
+        Builder builder = new Builder();
+        int[] row = new int[8];
+        for (int table = 0; table < TableCount; table++) {
+            String[] columns = columnNames(table);
+            StringBuilder sql = new StringBuilder("SELECT ");
+            for (int column = 0; column < columns.length; column++) {
+                sql.append(column == 0 ? "" : ", ").append(columns[column]);
+            }
+            sql.append(" FROM ").append(sourceTableName(table));
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql.toString(),
+                    FakebookOracleConstants.ForwardOnly, FakebookOracleConstants.ReadOnly)) {
+                stmt.setFetchSize(FakebookOracleConstants.LargeFetchSize);
+                ResultSet rst = stmt.executeQuery();
+                while (rst.next()) {
+                    for (int column = 0; column < columns.length; column++) {
+                        if (isText(table, column)) {
+                            row[column] = builder.encode(rst.getString(column + 1));
+                        }
+                        else {
+                            int value = rst.getInt(column + 1);
+                            row[column] = rst.wasNull() ? NULL : value;
+                        }
+                    }
+                    builder.addRow(table, row);
+                }
+                rst.close();
+            }
+        }
+        return builder.build();
+    }
+
+    // [Accessors]
+    public FakebookTable getTable(int table) {
+        return tables[table];
+    }
+
+    public FakebookStringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    // EFFECTS:  returns the string that the text code <code> stands for (null for NULL)
+    public String text(int code) {
+        return dictionary.get(code);
+    }
+
+    // [Schema Functions]
+    // EFFECTS:  return the columns kept for <table>, whether a column holds text, and the
+    //           name of the database table that <table> is loaded from
+    public static String[] columnNames(int table) {
+        return ColumnNames[table].clone();
+    }
+
+    public static boolean isText(int table, int column) {
+        return TextColumns[table][column];
+    }
+
+    public static String sourceTableName(int table) {
+        return SourceTables[table];
+    }
+
+    /*
+        A FakebookSnapshot.Builder collects rows table by table and interns text values into
+        the snapshot's dictionary as they arrive. Columns grow geometrically, so a builder
+        can be fed by a streaming scan without knowing the table sizes in advance.
+    */
+    static final class Builder {
+        // [Constructor]
+        public Builder() {
+            dictionary = new FakebookStringDictionary();
+            columns = new int[TableCount][][];
+            rows = new int[TableCount];
+            for (int table = 0; table < TableCount; table++) {
+                columns[table] = new int[ColumnNames[table].length][16];
+            }
+        }
+
+        // [Encode Function]
+        // MODIFIES: this
+        // EFFECTS:  returns the dictionary code of <value> (NULL for null), adding it if new
+        public int encode(String value) {
+            return dictionary.add(value);
+        }
+
+        // [Add Row Function]
+        // REQUIRES: <row> holds at least one value per column of <table>, with text
+        //           columns already encoded
+        // MODIFIES: this
+        // EFFECTS:  appends <row> to <table>
+        public void addRow(int table, int[] row) {
+            int[][] data = columns[table];
+            int at = rows[table];
+            if (at == data[0].length) {
+                for (int column = 0; column < data.length; column++) {
+                    data[column] = Arrays.copyOf(data[column], at * 2);
+                }
+            }
+            for (int column = 0; column < data.length; column++) {
+                data[column][at] = row[column];
+            }
+            rows[table] = at + 1;
+        }
+
+        // [Build Function]
+        // EFFECTS:  returns a snapshot of everything added so far; the builder must not be
+        //           used afterwards, since the snapshot shares its arrays
+        public FakebookSnapshot build() {
+            FakebookTable[] tables = new FakebookTable[TableCount];
+            for (int table = 0; table < TableCount; table++) {
+                IntBuffer[] data = new IntBuffer[columns[table].length];
+                for (int column = 0; column < data.length; column++) {
+                    data[column] = IntBuffer.wrap(columns[table][column], 0, rows[table]).slice();
+                }
+                tables[table] = new FakebookTable(table, rows[table], data);
+            }
+            return new FakebookSnapshot(tables, dictionary);
+        }
+
+        // Member Variables
+        private final FakebookStringDictionary dictionary;
+        private final int[][][] columns;
+        private final int[] rows;
+    }
+
+    // Member Variables
+    private final FakebookTable[] tables;
+    private final FakebookStringDictionary dictionary;
+
+    private static final String[][] ColumnNames = {
+        { "User_ID", "First_Name", "Last_Name", "Year_of_Birth", "Month_of_Birth", "Day_of_Birth", "Gender" },
+        { "City_ID", "City_Name", "State_Name", "Country_Name" },
+        { "User1_ID", "User2_ID" },
+        { "User_ID", "Current_City_ID" },
+        { "User_ID", "Hometown_City_ID" },
+        { "Program_ID", "Institution", "Concentration", "Degree" },
+        { "User_ID", "Program_ID", "Program_Year" },
+        { "Event_ID", "Event_Creator_ID", "Event_Name", "Event_City_ID" },
+        { "Album_ID", "Album_Owner_ID", "Album_Name", "Cover_Photo_ID" },
+        { "Photo_ID", "Album_ID", "Photo_Link" },
+        { "Tag_Photo_ID", "Tag_Subject_ID" }
+    };
+
+    private static final boolean[][] TextColumns = {
+        { false, true, true, false, false, false, true },
+        { false, true, true, true },
+        { false, false },
+        { false, false },
+        { false, false },
+        { false, true, true, true },
+        { false, false, false },
+        { false, false, true, false },
+        { false, false, true, false },
+        { false, false, true },
+        { false, false }
+    };
+
+    private static final String[] SourceTables = {
+        FakebookOracleConstants.UsersTable,
+        FakebookOracleConstants.CitiesTable,
+        FakebookOracleConstants.FriendsTable,
+        FakebookOracleConstants.CurrentCitiesTable,
+        FakebookOracleConstants.HometownCitiesTable,
+        FakebookOracleConstants.ProgramsTable,
+        FakebookOracleConstants.EducationTable,
+        FakebookOracleConstants.EventsTable,
+        FakebookOracleConstants.AlbumsTable,
+        FakebookOracleConstants.PhotosTable,
+        FakebookOracleConstants.TagsTable
+    };
+}
+
+/*
+    The FakebookTable class is one table of a FakebookSnapshot: a row count and one int
+    column per kept column, addressed by the column positions defined in FakebookSnapshot.
+*/
+final class FakebookTable {
+    // [Constructor]
+    // REQUIRES: every buffer in <columns> holds at least <rows> values
+    public FakebookTable(int table, int rows, IntBuffer[] columns) {
+        this.table = table;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    public int getTablePosition() {
+        return table;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public IntBuffer getColumn(int column) {
+        return columns[column];
+    }
+
+    // EFFECTS:  returns the value of <column> in row <row>
+    public int get(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    // Member Variables
+    private final int table;
+    private final int rows;
+    private final IntBuffer[] columns;
+}
+
+/*
+    The FakebookStringDictionary class maps every distinct string of a snapshot to a dense
+    int code and back. Codes are handed out in order of first appearance. A dictionary
+    opened from a snapshot file is read-only and decodes its strings from the mapped file
+    when they are asked for; its code lookup is built on first use.
+*/
+final class FakebookStringDictionary {
+    // [Constructors]
+    public FakebookStringDictionary() {
+        codes = new HashMap<String, Integer>();
+        values = new ArrayList<String>();
+        offsets = null;
+        bytes = null;
+    }
+
+    // REQUIRES: <offsets> holds one more offset than there are strings, and string <code>
+    //           is the UTF-8 bytes of <bytes> between offsets <code> and <code> + 1
+    public FakebookStringDictionary(IntBuffer offsets, ByteBuffer bytes) {
+        this.offsets = offsets;
+        this.bytes = bytes;
+        values = null;
+    }
+
+    // [Add Function]
+    // MODIFIES: this
+    // EFFECTS:  returns the code of <value>, assigning the next free code if it is new;
+    //           returns FakebookSnapshot.NULL for null
+    public int add(String value) {
+        if (value == null) {
+            return FakebookSnapshot.NULL;
+        }
+        if (values == null) {
+            throw new UnsupportedOperationException("A mapped dictionary is read-only");
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    // [Lookup Functions]
+    // EFFECTS:  get returns the string for <code> (null for FakebookSnapshot.NULL); codeOf
+    //           returns the code of <value>, or FakebookSnapshot.NULL if it is not present
+    public String get(int code) {
+        if (code == FakebookSnapshot.NULL) {
+            return null;
+        }
+        if (values != null) {
+            return values.get(code);
+        }
+        int start = offsets.get(code);
+        byte[] text = new byte[offsets.get(code + 1) - start];
+        ByteBuffer view = bytes.duplicate();
+        view.position(start);
+        view.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    public int codeOf(String value) {
+        Integer code = value == null ? null : getCodes().get(value);
+        return code == null ? FakebookSnapshot.NULL : code;
+    }
+
+    public int size() {
+        return values != null ? values.size() : offsets.limit() - 1;
+    }
+
+    // EFFECTS:  returns the map from strings to codes, decoding every string of a mapped
+    //           dictionary the first time
+    private synchronized HashMap<String, Integer> getCodes() {
+        if (codes == null) {
+            HashMap<String, Integer> decoded = new HashMap<String, Integer>();
+            for (int code = 0; code < size(); code++) {
+                decoded.put(get(code), code);
+            }
+            codes = decoded;
+        }
+        return codes;
+    }
+
+    // Member Variables
+    private HashMap<String, Integer> codes;
+    private final ArrayList<String> values;             // null when mapped
+    private final IntBuffer offsets;                    // null unless mapped
+    private final ByteBuffer bytes;
+}
@@ -0,0 +1,273 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/*
+    The FakebookSnapshotFile class saves a FakebookSnapshot to a binary file and opens it
+    again by memory-mapping the file, so that an in-memory engine starts without reading
+    anything over JDBC, and the operating system pages the data in as the queries touch it.
+
+    A snapshot file is little-endian and laid out as follows:
+        header      magic, format version, table count, then the column and row counts of
+                    every table, the string count and byte length of the dictionary, one
+                    CRC32 per column and per dictionary section, and a CRC32 of the header
+        columns     every column of every table in table and column order, as <rows> ints
+        dictionary  <strings> + 1 int offsets, then the UTF-8 bytes of all strings; string
+                    <code> is the bytes between offsets <code> and <code> + 1
+    Every section starts at a multiple of 8 bytes. Opening a file checks the header; the
+    data checksums are only checked on request, since that reads the whole file.
+*/
+final class FakebookSnapshotFile {
+    // [Write Function]
+    // MODIFIES: <file>
+    // EFFECTS:  writes <snapshot> to <file>, replacing it if it exists
+    public static void write(FakebookSnapshot snapshot, File file) throws IOException {
+        FakebookStringDictionary dictionary = snapshot.getDictionary();
+        int strings = dictionary.size();
+        int[] offsets = new int[strings + 1];
+        byte[][] encoded = new byte[strings][];
+        for (int code = 0; code < strings; code++) {
+            encoded[code] = dictionary.get(code).getBytes(StandardCharsets.UTF_8);
+            long end = (long)offsets[code] + encoded[code].length;
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot dictionary exceeds 2 GB");
+            }
+            offsets[code + 1] = (int)end;
+        }
+
+        int sections = columnCount() + 2;
+        long[] checksums = new long[sections];
+        int header = align(headerLength(sections));
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer chunk = ByteBuffer.allocate(ChunkSize).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+            long position = header;
+            int section = 0;
+
+            // columns
+            for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+                FakebookTable data = snapshot.getTable(table);
+                for (int column = 0; column < data.getColumnCount(); column++) {
+                    crc.reset();
+                    for (int row = 0; row < data.getRowCount(); row++) {
+                        if (!chunk.hasRemaining()) {
+                            position = flush(channel, chunk, crc, position);
+                        }
+                        chunk.putInt(data.get(row, column));
+                    }
+                    position = flush(channel, chunk, crc, position);
+                    checksums[section++] = crc.getValue();
+                    position = align(position);
+                }
+            }
+
+            // dictionary offsets, then bytes
+            crc.reset();
+            for (int offset : offsets) {
+                if (!chunk.hasRemaining()) {
+                    position = flush(channel, chunk, crc, position);
+                }
+                chunk.putInt(offset);
+            }
+            position = flush(channel, chunk, crc, position);
+            checksums[section++] = crc.getValue();
+            position = align(position);
+
+            crc.reset();
+            for (byte[] bytes : encoded) {
+                for (int at = 0; at < bytes.length; ) {
+                    if (!chunk.hasRemaining()) {
+                        position = flush(channel, chunk, crc, position);
+                    }
+                    int length = Math.min(chunk.remaining(), bytes.length - at);
+                    chunk.put(bytes, at, length);
+                    at += length;
+                }
+            }
+            position = flush(channel, chunk, crc, position);
+            checksums[section] = crc.getValue();
+
+            // header last, now that the checksums are known
+            ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(Magic).putInt(Version).putInt(FakebookSnapshot.TableCount);
+            for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+                head.putInt(snapshot.getTable(table).getColumnCount()).putInt(snapshot.getTable(table).getRowCount());
+            }
+            head.putInt(strings).putLong(offsets[strings]);
+            for (long checksum : checksums) {
+                head.putInt((int)checksum);
+            }
+            crc.reset();
+            crc.update(head.array(), 0, head.position());
+            head.putInt((int)crc.getValue());
+            head.clear();
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+        }
+    }
+
+    // [Open Function]
+    // EFFECTS:  maps <file> and returns the snapshot it holds; when <verify> is true, also
+    //           checks every column and the dictionary against their checksums. Throws an
+    //           IOException if <file> is not a snapshot of this version or is damaged
+    public static FakebookSnapshot open(File file, boolean verify) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            int sections = columnCount() + 2;
+            int header = align(headerLength(sections));
+            ByteBuffer head = readHeader(channel, file);
+            if (head.getInt() != FakebookSnapshot.TableCount) {
+                throw new IOException(file + " does not match the snapshot schema");
+            }
+            int[] rows = new int[FakebookSnapshot.TableCount];
+            for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+                if (head.getInt() != FakebookSnapshot.columnNames(table).length) {
+                    throw new IOException(file + " does not match the snapshot schema");
+                }
+                rows[table] = head.getInt();
+            }
+            int strings = head.getInt();
+            long bytes = head.getLong();
+            int[] checksums = new int[sections];
+            for (int section = 0; section < sections; section++) {
+                checksums[section] = head.getInt();
+            }
+
+            // map every section separately, so that no single mapping exceeds 2 GB
+            FakebookTable[] tables = new FakebookTable[FakebookSnapshot.TableCount];
+            long position = header;
+            int section = 0;
+            for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+                IntBuffer[] columns = new IntBuffer[FakebookSnapshot.columnNames(table).length];
+                for (int column = 0; column < columns.length; column++) {
+                    ByteBuffer data = map(channel, file, position, 4L * rows[table], size);
+                    check(file, verify, data, checksums[section++], FakebookSnapshot.sourceTableName(table));
+                    columns[column] = data.asIntBuffer();
+                    position = align(position + 4L * rows[table]);
+                }
+                tables[table] = new FakebookTable(table, rows[table], columns);
+            }
+            ByteBuffer offsets = map(channel, file, position, 4L * (strings + 1), size);
+            check(file, verify, offsets, checksums[section++], "dictionary");
+            position = align(position + 4L * (strings + 1));
+            ByteBuffer text = map(channel, file, position, bytes, size);
+            check(file, verify, text, checksums[section], "dictionary");
+
+            return new FakebookSnapshot(tables, new FakebookStringDictionary(offsets.asIntBuffer(), text));
+        }
+    }
+
+    // [Checksum Function]
+    // EFFECTS:  returns the CRC32 of the header of <file>, which covers the checksums of all
+    //           its data, so that files of different contents have different values. Throws
+    //           an IOException if <file> is not a snapshot of this version or is damaged
+    public static int checksum(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            ByteBuffer head = readHeader(in.getChannel(), file);
+            return head.getInt(headerLength(columnCount() + 2) - 4);
+        }
+    }
+
+    // [Helper Functions]
+    // EFFECTS:  reads the header of <file> from <channel> and checks its magic, version, and
+    //           CRC32; returns it positioned after the version
+    private static ByteBuffer readHeader(FileChannel channel, File file) throws IOException {
+        int sections = columnCount() + 2;
+        int header = align(headerLength(sections));
+        if (channel.size() < header) {
+            throw new IOException(file + " is not a Fakebook snapshot");
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) < 0) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+        head.flip();
+        if (head.getInt() != Magic) {
+            throw new IOException(file + " is not a Fakebook snapshot");
+        }
+        int version = head.getInt();
+        if (version != Version) {
+            throw new IOException(file + " has snapshot format " + version + ", expected " + Version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head.array(), 0, headerLength(sections) - 4);
+        if (head.getInt(headerLength(sections) - 4) != (int)crc.getValue()) {
+            throw new IOException(file + " has a damaged header");
+        }
+        return head;
+    }
+
+    // EFFECTS:  writes out what <chunk> holds at <position>, adds it to <crc>, empties
+    //           <chunk>, and returns the position after it
+    private static long flush(FileChannel channel, ByteBuffer chunk, CRC32 crc, long position) throws IOException {
+        chunk.flip();
+        crc.update(chunk.array(), 0, chunk.limit());
+        while (chunk.hasRemaining()) {
+            position += channel.write(chunk, position);
+        }
+        chunk.clear();
+        return position;
+    }
+
+    // EFFECTS:  returns <length> bytes of <channel> from <position>, mapped read-only
+    private static ByteBuffer map(FileChannel channel, File file, long position, long length, long size)
+            throws IOException {
+        if (position + length > size) {
+            throw new IOException(file + " is truncated");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void check(File file, boolean verify, ByteBuffer data, int checksum, String what)
+            throws IOException {
+        if (!verify) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if ((int)crc.getValue() != checksum) {
+            throw new IOException(file + " has a damaged section in " + what);
+        }
+    }
+
+    private static int columnCount() {
+        int columns = 0;
+        for (int table = 0; table < FakebookSnapshot.TableCount; table++) {
+            columns += FakebookSnapshot.columnNames(table).length;
+        }
+        return columns;
+    }
+
+    private static int headerLength(int sections) {
+        return 4 * (3 + 2 * FakebookSnapshot.TableCount + 1) + 8 + 4 * sections + 4;
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // Member Variables
+    public static final int Version = 1;                // bump whenever the layout changes
+
+    private static final int Magic = 0x4E534246;        // "FBSN" in file byte order
+    private static final int ChunkSize = 1 << 16;
+}
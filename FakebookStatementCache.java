@@ -0,0 +1,204 @@
+package project2;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    The FakebookStatementCache class keeps the most recently used PreparedStatements of a
+    single physical connection, keyed by SQL text and result set options, so that executing
+    the same query again skips the hard parse on the server. Statements handed out by the
+    cache are returned to it when their close() method is called. A statement that is still
+    in use when the same SQL is prepared again is not shared; the second caller gets a plain,
+    uncached statement instead.
+*/
+final class FakebookStatementCache {
+    // [Constructor]
+    // REQUIRES: <capacity> is non-negative; a capacity of 0 disables caching
+    // EFFECTS:  creates an empty cache that counts its hits and misses in <hits> and <misses>
+    public FakebookStatementCache(int capacity, AtomicLong hits, AtomicLong misses) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true);
+    }
+
+    // [Prepare Function]
+    // REQUIRES: <connection> is the physical connection this cache belongs to
+    // MODIFIES: this
+    // EFFECTS:  returns a PreparedStatement for <sql> with the given result set type and
+    //           concurrency, reusing a cached one when it is available
+    public PreparedStatement prepare(Connection connection, String sql, int type, int concurrency) throws SQLException {
+        if (capacity == 0) {
+            return connection.prepareStatement(sql, type, concurrency);
+        }
+
+        String key = type + ":" + concurrency + ":" + sql;
+        CachedStatement cached = entries.get(key);
+        if (cached != null && cached.owner != null) {
+            misses.incrementAndGet();
+            return connection.prepareStatement(sql, type, concurrency);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+            cached = new CachedStatement(connection.prepareStatement(sql, type, concurrency));
+            entries.put(key, cached);
+            evictOverflow();
+        }
+
+        Loan loan = new Loan(cached);
+        cached.owner = loan;
+        return (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class }, loan);
+    }
+
+    // [Reclaim Function]
+    // MODIFIES: this
+    // EFFECTS:  marks every cached statement as free; called when the owning connection goes
+    //           back to the pool, since no statement may outlive its connection's loan
+    public void reclaim() {
+        for (CachedStatement cached : entries.values()) {
+            if (cached.owner != null) {
+                cached.owner = null;
+                clearQuietly(cached.statement);
+            }
+        }
+    }
+
+    // [Close Function]
+    // MODIFIES: this
+    // EFFECTS:  closes and forgets every cached statement
+    public void close() {
+        for (CachedStatement cached : entries.values()) {
+            closeQuietly(cached.statement);
+        }
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // [Helper Functions]
+    private void evictOverflow() {
+        Iterator<CachedStatement> eldest = entries.values().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            CachedStatement cached = eldest.next();
+            eldest.remove();
+            if (cached.owner != null) {
+                cached.evicted = true;          // closed once its borrower is done with it
+            }
+            else {
+                closeQuietly(cached.statement);
+            }
+        }
+    }
+
+    private void giveBack(CachedStatement cached) {
+        cached.owner = null;
+        if (cached.evicted) {
+            closeQuietly(cached.statement);
+        }
+        else {
+            clearQuietly(cached.statement);
+        }
+    }
+
+    private static void clearQuietly(PreparedStatement statement) {
+        try {
+            statement.clearParameters();
+        }
+        catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        }
+        catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /*
+        A CachedStatement is a physical PreparedStatement along with the loan through which a
+        caller is currently using it (if any) and whether it has been pushed out of the cache
+        in the meantime.
+    */
+    private static final class CachedStatement {
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        final PreparedStatement statement;
+        Loan owner;
+        boolean evicted;
+    }
+
+    /*
+        A Loan is the handler behind each statement handed out by prepare(). It forwards
+        every call to the cached statement, except that close() hands the statement back to
+        the cache instead of closing it.
+    */
+    private final class Loan implements InvocationHandler {
+        Loan(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && method.getParameterTypes().length == 0) {
+                if (isOpen()) {
+                    giveBack(cached);
+                }
+                cached = null;
+                return null;
+            }
+            if (name.equals("isClosed") && method.getParameterTypes().length == 0) {
+                return !isOpen();
+            }
+            if (name.equals("equals") && method.getParameterTypes().length == 1) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode") && method.getParameterTypes().length == 0) {
+                return System.identityHashCode(proxy);
+            }
+            if (!isOpen()) {
+                throw new SQLException("Statement has already been returned to the cache");
+            }
+
+            try {
+                return method.invoke(cached.statement, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // EFFECTS:  returns whether this loan still owns its statement; a loan ends when it
+        //           is closed or when its connection goes back to the pool
+        private boolean isOpen() {
+            return cached != null && cached.owner == this;
+        }
+
+        private CachedStatement cached;
+    }
+
+    // Member Variables
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, CachedStatement> entries;
+}
@@ -0,0 +1,170 @@
+package project2;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/*
+    The FakebookUserCache class is an identity map of users: it holds at most one UserInfo
+    per User_ID, so that queries can select just the IDs of the users they find and turn
+    them into UserInfo instances here, fetching the names of users it has not seen yet in
+    batches of BatchSize IDs. Every query that asks for the same user gets the same
+    UserInfo instance. The least recently used users are dropped once the cache is full.
+    preload() fills the cache with one scan of the Users table.
+*/
+final class FakebookUserCache {
+    // [Constructor]
+    // REQUIRES: <capacity> is positive
+    // EFFECTS:  creates an empty cache that holds at most <capacity> users, whose names
+    //           are encoded with <names>
+    public FakebookUserCache(int capacity, FakebookNameDictionary names) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.names = names;
+        users = new LinkedHashMap<Long, UserInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserInfo> eldest) {
+                return size() > FakebookUserCache.this.capacity;
+            }
+        };
+    }
+
+    // [Resolve Function]
+    // REQUIRES: <connection> is a valid JDBC connection to the Fakebook schema
+    // MODIFIES: this
+    // EFFECTS:  returns the users with the IDs in <userIDs>, fetching those not cached
+    //           through <connection>; IDs that are not in the Users table are left out
+    public Map<Long, UserInfo> resolve(Connection connection, Collection<Long> userIDs) throws SQLException {
+        HashMap<Long, UserInfo> found = new HashMap<Long, UserInfo>();
+        LinkedHashSet<Long> missing = new LinkedHashSet<Long>();
+        synchronized (this) {
+            for (Long userID : userIDs) {
+                UserInfo user = users.get(userID);
+                if (user != null) {
+                    found.put(userID, user);
+                    hits++;
+                }
+                else if (missing.add(userID)) {
+                    misses++;
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        // the last batch is padded with its final ID so that every batch runs the same
+        // cached statement
+        int size = FakebookOracleConstants.BatchSize;
+        StringBuilder ids = new StringBuilder("?");
+        for (int idx = 1; idx < size; idx++) {
+            ids.append(", ?");
+        }
+        ArrayList<Long> batch = new ArrayList<Long>(missing);
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT User_ID, First_Name, Last_Name FROM " + FakebookOracleConstants.UsersTable +
+                " WHERE User_ID IN (" + ids + ")",
+                FakebookOracleConstants.ForwardOnly, FakebookOracleConstants.ReadOnly)) {
+            stmt.setFetchSize(FakebookOracleConstants.LargeFetchSize);
+            for (int begin = 0; begin < batch.size(); begin += size) {
+                for (int idx = 0; idx < size; idx++) {
+                    stmt.setLong(idx + 1, batch.get(Math.min(begin + idx, batch.size() - 1)));
+                }
+                try (ResultSet rst = stmt.executeQuery()) {
+                    while (rst.next()) {
+                        long userID = rst.getLong(1);
+                        found.put(userID, store(userID, new UserInfo(names, userID, rst.getString(2), rst.getString(3))));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // REQUIRES: <connection> is a valid JDBC connection to the Fakebook schema
+    // MODIFIES: this
+    // EFFECTS:  returns the user with ID <userID>, or null if there is no such user
+    public UserInfo resolve(Connection connection, long userID) throws SQLException {
+        ArrayList<Long> userIDs = new ArrayList<Long>(1);
+        userIDs.add(userID);
+        return resolve(connection, userIDs).get(userID);
+    }
+
+    // [Preload Function]
+    // REQUIRES: <connection> is a valid JDBC connection to the Fakebook schema
+    // MODIFIES: this
+    // EFFECTS:  reads the Users table in one scan and caches the users in it, up to the
+    //           capacity of the cache, and returns how many were read
+    public int preload(Connection connection) throws SQLException {
+        int count = 0;
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT User_ID, First_Name, Last_Name FROM " + FakebookOracleConstants.UsersTable,
+                FakebookOracleConstants.ForwardOnly, FakebookOracleConstants.ReadOnly)) {
+            stmt.setFetchSize(FakebookOracleConstants.LargeFetchSize);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (count < capacity && rst.next()) {
+                    long userID = rst.getLong(1);
+                    store(userID, new UserInfo(names, userID, rst.getString(2), rst.getString(3)));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // [Invalidate Function]
+    // MODIFIES: this
+    // EFFECTS:  forgets every cached user, e.g. after the Users table has changed
+    public synchronized void invalidate() {
+        users.clear();
+    }
+
+    // [Statistics Functions]
+    // EFFECTS:  return the number of cached users, and how many lookups found a cached user
+    //           or had to fetch one
+    public synchronized int size() {
+        return users.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    // EFFECTS:  returns a one-line summary of the statistics
+    public synchronized String toString() {
+        return String.format("User cache: %d of %d users, %d hits, %d misses", users.size(), capacity, hits, misses);
+    }
+
+    // [Helper Functions]
+    // MODIFIES: this
+    // EFFECTS:  caches <user> under <userID> unless another thread cached that user first,
+    //           and returns the cached instance
+    private synchronized UserInfo store(long userID, UserInfo user) {
+        UserInfo cached = users.get(userID);
+        if (cached != null) {
+            return cached;
+        }
+        users.put(userID, user);
+        return user;
+    }
+
+    // Member Variables
+    private final int capacity;
+    private final FakebookNameDictionary names;
+    private final LinkedHashMap<Long, UserInfo> users;      // in access order, eldest first
+    private long hits;
+    private long misses;
+}
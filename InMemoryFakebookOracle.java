@@ -0,0 +1,567 @@
+package project2;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    The InMemoryFakebookOracle class is derived from the FakebookOracle class and answers the
+    ten Fakebook queries from a FakebookSnapshot instead of sending SQL to the database. The
+    constructor builds the indexes that the queries share (users and photos in ID order,
+    friend lists, cities, tags, and the users of Queries 2 and 3, taken from a bitmap
+    index); each query is then a set of hash joins and aggregations over those indexes.
+    Results are identical to those of StudentFakebookOracle on the same data, including the
+    order of every list. The indexes are never modified once built, so one instance may be
+    shared by concurrent callers.
+*/
+public final class InMemoryFakebookOracle extends FakebookOracle {
+    // [Constructor]
+    // REQUIRES: <snapshot> satisfies the key constraints of the Fakebook schema
+    public InMemoryFakebookOracle(FakebookSnapshot snapshot) {
+        this(snapshot, FakebookBitmapIndex.fromSnapshot(snapshot));
+    }
+
+    // [Constructor]
+    // REQUIRES: <snapshot> satisfies the key constraints of the Fakebook schema, and
+    //           <bitmaps> is the index of <snapshot>, e.g. one saved next to its file
+    // EFFECTS:  copies the users of Queries 2 and 3 out of <bitmaps>; later changes to
+    //           <bitmaps> do not affect this oracle, which stays a view of <snapshot>
+    public InMemoryFakebookOracle(FakebookSnapshot snapshot, FakebookBitmapIndex bitmaps) {
+        this.snapshot = snapshot;
+        lonelyUserIDs = bitmaps.getLonelyUsers();
+        awayUserIDs = bitmaps.getUsersAwayFromHome();
+        users = snapshot.getTable(FakebookSnapshot.Users);
+        photos = snapshot.getTable(FakebookSnapshot.Photos);
+        albums = snapshot.getTable(FakebookSnapshot.Albums);
+
+        userRows = sortedRows(users, FakebookSnapshot.UserID);
+        userIndex = denseIndex(users, FakebookSnapshot.UserID, userRows);
+        names = new FakebookNameDictionary();
+        firstNames = encodeNames(FakebookSnapshot.FirstName);
+        lastNames = encodeNames(FakebookSnapshot.LastName);
+        photoRows = sortedRows(photos, FakebookSnapshot.PhotoID);
+        photoIndex = denseIndex(photos, FakebookSnapshot.PhotoID, photoRows);
+        albumIndex = denseIndex(albums, FakebookSnapshot.AlbumID, null);
+
+        friends = FakebookFriendGraph.fromSnapshot(snapshot);
+        recommender = new FakebookFriendRecommender(friends);
+        eventStates = new FakebookEventStateCounter(snapshot);
+        hometownCity = indexCities(snapshot.getTable(FakebookSnapshot.HometownCities), FakebookSnapshot.HometownCityID);
+        siblings = new FakebookSiblingJoin(friends, userColumn(FakebookSnapshot.LastName),
+            userColumn(FakebookSnapshot.YearOfBirth), hometownCity);
+        indexTags();
+        matcher = new FakebookMatchCounter(friends, photoTags, userColumn(FakebookSnapshot.Gender),
+            userColumn(FakebookSnapshot.YearOfBirth));
+    }
+
+    @Override
+    // Query 0
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the total number of users for which a birth month is listed
+    //        (B) Find the birth month in which the most users were born
+    //        (C) Find the birth month in which the fewest users (at least one) were born
+    //        (D) Find the IDs, first names, and last names of users born in the month
+    //            identified in (B)
+    //        (E) Find the IDs, first names, and last name of users born in the month
+    //            identified in (C)
+    public BirthMonthInfo findMonthOfBirthInfo() throws SQLException {
+        FakebookIntIntMap counts = new FakebookIntIntMap(16);
+        int[] months = new int[16];
+        int total = 0;
+        for (int user = 0; user < userRows.length; user++) {
+            int month = userColumn(user, FakebookSnapshot.MonthOfBirth);
+            if (month == FakebookSnapshot.NULL) {
+                continue;
+            }
+            if (!counts.containsKey(month)) {
+                if (counts.size() == months.length) {
+                    months = Arrays.copyOf(months, months.length * 2);
+                }
+                months[counts.size()] = month;
+            }
+            counts.add(month, 1);
+            total++;
+        }
+
+        // months ordered by count desc, month asc: the most popular month comes first and
+        // the least popular one last
+        int mostMonth = 0;
+        int leastMonth = 0;
+        for (int idx = 0; idx < counts.size(); idx++) {
+            int month = months[idx];
+            int count = counts.get(month, 0);
+            if (idx == 0 || count > counts.get(mostMonth, 0) || (count == counts.get(mostMonth, 0) && month < mostMonth)) {
+                mostMonth = month;
+            }
+            if (idx == 0 || count < counts.get(leastMonth, 0) || (count == counts.get(leastMonth, 0) && month > leastMonth)) {
+                leastMonth = month;
+            }
+        }
+
+        BirthMonthInfo info = new BirthMonthInfo(total, mostMonth, leastMonth);
+        for (int user = 0; user < userRows.length; user++) {
+            int month = userColumn(user, FakebookSnapshot.MonthOfBirth);
+            if (month != FakebookSnapshot.NULL && month == mostMonth) {
+                info.addMostPopularBirthMonthUser(userInfo(user));
+            }
+        }
+        for (int user = 0; user < userRows.length; user++) {
+            int month = userColumn(user, FakebookSnapshot.MonthOfBirth);
+            if (month != FakebookSnapshot.NULL && month == leastMonth) {
+                info.addLeastPopularBirthMonthUser(userInfo(user));
+            }
+        }
+        return info;
+    }
+
+    @Override
+    // Query 1
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) The first name(s) with the most letters
+    //        (B) The first name(s) with the fewest letters
+    //        (C) The first name held by the most users
+    //        (D) The number of users whose first name is that identified in (C)
+    public FirstNameInfo findNameInfo() throws SQLException {
+        FakebookIntIntMap frequency = new FakebookIntIntMap(1024);
+        ArrayList<String> names = new ArrayList<String>();
+        int maxFrequency = 0;
+        for (int user = 0; user < userRows.length; user++) {
+            int name = userColumn(user, FakebookSnapshot.FirstName);
+            if (name == FakebookSnapshot.NULL) {
+                continue;
+            }
+            int count = frequency.add(name, 1);
+            if (count == 1) {
+                names.add(snapshot.text(name));
+            }
+            maxFrequency = Math.max(maxFrequency, count);
+        }
+
+        FirstNameInfo info = new FirstNameInfo();
+        int longest = 0;
+        int shortest = Integer.MAX_VALUE;
+        for (String name : names) {
+            longest = Math.max(longest, name.length());
+            shortest = Math.min(shortest, name.length());
+        }
+
+        Collections.sort(names);
+        for (String name : names) {
+            if (name.length() == longest) {
+                info.addLongName(name);
+            }
+        }
+        for (String name : names) {
+            if (name.length() == shortest) {
+                info.addShortName(name);
+            }
+        }
+
+        // a second scan finds the most common names by code, which a mapped dictionary
+        // can answer without building its reverse lookup
+        ArrayList<String> common = new ArrayList<String>();
+        for (int user = 0; user < userRows.length; user++) {
+            int name = userColumn(user, FakebookSnapshot.FirstName);
+            if (name != FakebookSnapshot.NULL && frequency.get(name, 0) == maxFrequency) {
+                common.add(snapshot.text(name));
+                frequency.put(name, 0);
+            }
+        }
+        Collections.sort(common, Collections.reverseOrder());
+        for (String name : common) {
+            info.addCommonName(name);
+        }
+        info.setCommonNameCount(maxFrequency);
+        return info;
+    }
+
+    @Override
+    // Query 2
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the IDs, first names, and last names of users without any friends
+    public FakebookArrayList<UserInfo> lonelyUsers() throws SQLException {
+        FakebookArrayList<UserInfo> results = new FakebookArrayList<UserInfo>(", ");
+        for (int userID : lonelyUserIDs) {
+            results.add(userInfo(userIndex.get(userID, -1)));
+        }
+        return results;
+    }
+
+    @Override
+    // Query 3
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the IDs, first names, and last names of users who no longer live
+    //            in their hometown (i.e. their current city and their hometown are different)
+    public FakebookArrayList<UserInfo> liveAwayFromHome() throws SQLException {
+        FakebookArrayList<UserInfo> results = new FakebookArrayList<UserInfo>(", ");
+        for (int userID : awayUserIDs) {
+            results.add(userInfo(userIndex.get(userID, -1)));
+        }
+        return results;
+    }
+
+    @Override
+    // Query 4
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the IDs, links, and IDs and names of the containing album of the top
+    //            <num> photos with the most tagged users
+    //        (B) For each photo identified in (A), find the IDs, first names, and last names
+    //            of the users therein tagged
+    public FakebookArrayList<TaggedPhotoInfo> findPhotosWithMostTags(int num) throws SQLException {
+        FakebookArrayList<TaggedPhotoInfo> results = new FakebookArrayList<TaggedPhotoInfo>("\n");
+
+        ArrayList<Integer> ranked = new ArrayList<Integer>();
+        for (int photo = 0; photo < photoRows.length; photo++) {
+            if (photoTags[photo].length > 0 && albumRow(photo) >= 0) {
+                ranked.add(photo);
+            }
+        }
+        Collections.sort(ranked, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                int byCount = Integer.compare(photoTags[b].length, photoTags[a].length);
+                return byCount != 0 ? byCount : Integer.compare(a, b);
+            }
+        });
+
+        for (int idx = 0; idx < ranked.size() && idx < num; idx++) {
+            int photo = ranked.get(idx);
+            TaggedPhotoInfo tp = new TaggedPhotoInfo(photoInfo(photo));
+            for (int user : photoTags[photo]) {
+                tp.addTaggedUser(userInfo(user));
+            }
+            results.add(tp);
+        }
+        return results;
+    }
+
+    @Override
+    // Query 5
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the IDs, first names, last names, and birth years of each of the two
+    //            users in the top <num> pairs of users that meet each of the following
+    //            criteria:
+    //              (i) same gender
+    //              (ii) tagged in at least one common photo
+    //              (iii) difference in birth years is no more than <yearDiff>
+    //              (iv) not friends
+    //        (B) For each pair identified in (A), find the IDs, links, and IDs and names of
+    //            the containing album of each photo in which they are tagged together
+    public FakebookArrayList<MatchPair> matchMaker(int num, int yearDiff) throws SQLException {
+        FakebookArrayList<MatchPair> results = new FakebookArrayList<MatchPair>("\n");
+
+        FakebookPairHeap top = matcher.match(num, yearDiff);
+        for (int idx = 0; idx < top.size(); idx++) {
+            int user1 = top.first(idx);
+            int user2 = top.second(idx);
+            MatchPair mp = new MatchPair(userInfo(user1), userColumn(user1, FakebookSnapshot.YearOfBirth),
+                userInfo(user2), userColumn(user2, FakebookSnapshot.YearOfBirth));
+            int[] photos1 = userPhotos[user1];
+            int[] photos2 = userPhotos[user2];
+            for (int i = 0, j = 0; i < photos1.length && j < photos2.length; ) {
+                if (photos1[i] < photos2[j]) {
+                    i++;
+                }
+                else if (photos1[i] > photos2[j]) {
+                    j++;
+                }
+                else {
+                    if (albumRow(photos1[i]) >= 0) {
+                        mp.addSharedPhoto(photoInfo(photos1[i]));
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            results.add(mp);
+        }
+        return results;
+    }
+
+    @Override
+    // Query 6
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the IDs, first names, and last names of each of the two users in
+    //            the top <num> pairs of users who are not friends but have a lot of
+    //            common friends
+    //        (B) For each pair identified in (A), find the IDs, first names, and last names
+    //            of all the two users' common friends
+    public FakebookArrayList<UsersPair> suggestFriends(int num) throws SQLException {
+        FakebookArrayList<UsersPair> results = new FakebookArrayList<UsersPair>("\n");
+
+        FakebookPairHeap top = recommender.recommend(num);
+        int[] common = new int[friends.getVertexCount()];
+        for (int idx = 0; idx < top.size(); idx++) {
+            int user1 = top.first(idx);
+            int user2 = top.second(idx);
+            UsersPair up = new UsersPair(userInfo(user1), userInfo(user2));
+            int count = friends.intersect(user1, user2, common);
+            for (int friend = 0; friend < count; friend++) {
+                up.addSharedFriend(userInfo(common[friend]));
+            }
+            results.add(up);
+        }
+        return results;
+    }
+
+    @Override
+    // Query 7
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the name of the state or states in which the most events are held
+    //        (B) Find the number of events held in the states identified in (A)
+    public EventStateInfo findEventStates() throws SQLException {
+        return eventStates.count();
+    }
+
+    @Override
+    // Query 8
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the ID, first name, and last name of the oldest friend of the user
+    //            with User ID <userID>
+    //        (B) Find the ID, first name, and last name of the youngest friend of the user
+    //            with User ID <userID>
+    public AgeInfo findAgeInfo(long userID) throws SQLException {
+        return ageInfo(userID);
+    }
+
+    @Override
+    // Query 8 (Batch)
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the ID, first name, and last name of the oldest and of the youngest
+    //            friend of every user in <userIDs>
+    //
+    // Each user's friends are read straight from the friendship graph, so the batch walks
+    // the friend lists of the requested users once and nothing else. Every user goes through
+    // the same ageInfo() as the single-user query, so ties on birth date go to the higher
+    // User_ID, as in the ROW_NUMBER() ... USER_ID DESC ranking of the SQL batch
+    public Map<Long, AgeInfo> findAgeInfo(Collection<Long> userIDs) throws SQLException {
+        Map<Long, AgeInfo> results = new LinkedHashMap<Long, AgeInfo>();
+        for (Long userID : userIDs) {
+            if (!results.containsKey(userID)) {
+                results.put(userID, ageInfo(userID));
+            }
+        }
+        return results;
+    }
+
+    // EFFECTS:  returns the oldest and youngest friend of user <userID>, or the ERROR result
+    //           if the user is unknown or has no friends
+    private AgeInfo ageInfo(long userID) {
+        int user = userID <= Integer.MIN_VALUE || userID > Integer.MAX_VALUE ? -1 : userIndex.get((int)userID, -1);
+        if (user < 0 || friends.degree(user) == 0) {
+            return new AgeInfo(new UserInfo(names, -1, "ERROR", "ERROR"), new UserInfo(names, -1, "ERROR", "ERROR"));
+        }
+
+        // a missing birth date counts as later than every known one, so it is never the
+        // oldest and always the youngest; friends born on the same date go to the higher
+        // user ID for both, as in the ORDER BY ... USER_ID DESC of the SQL engine
+        int oldest = -1;
+        int youngest = -1;
+        for (int position = friends.start(user); position < friends.end(user); position++) {
+            int friend = friends.neighbor(position);
+            int byOldest = oldest < 0 ? -1 : compareBirthDates(friend, oldest);
+            if (byOldest < 0 || (byOldest == 0 && friend > oldest)) {
+                oldest = friend;
+            }
+            int byYoungest = youngest < 0 ? 1 : compareBirthDates(friend, youngest);
+            if (byYoungest > 0 || (byYoungest == 0 && friend > youngest)) {
+                youngest = friend;
+            }
+        }
+        return new AgeInfo(userInfo(oldest), userInfo(youngest));
+    }
+
+    @Override
+    // Query 9
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find all pairs of users that meet each of the following criteria
+    //              (i) same last name
+    //              (ii) same hometown
+    //              (iii) are friends
+    //              (iv) less than 10 birth years apart
+    public FakebookArrayList<SiblingInfo> findPotentialSiblings() throws SQLException {
+        FakebookArrayList<SiblingInfo> results = new FakebookArrayList<SiblingInfo>("\n");
+        for (long pair : siblings.join()) {
+            results.add(new SiblingInfo(userInfo((int)(pair >>> 32)), userInfo((int)pair)));
+        }
+        return results;
+    }
+
+    // [Index Functions]
+    // EFFECTS:  sortedRows returns the rows of <table> in ascending order of <idColumn>;
+    //           denseIndex maps each ID to its position in <order> (or to its row when
+    //           <order> is null)
+    private static int[] sortedRows(FakebookTable table, int idColumn) {
+        int rows = table.getRowCount();
+        long[] keyed = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            keyed[row] = ((long)table.get(row, idColumn) << 32) | row;
+        }
+        Arrays.sort(keyed);
+        int[] order = new int[rows];
+        for (int idx = 0; idx < rows; idx++) {
+            order[idx] = (int)keyed[idx];
+        }
+        return order;
+    }
+
+    private static FakebookIntIntMap denseIndex(FakebookTable table, int idColumn, int[] order) {
+        int rows = table.getRowCount();
+        FakebookIntIntMap index = new FakebookIntIntMap(rows);
+        for (int idx = 0; idx < rows; idx++) {
+            index.put(table.get(order == null ? idx : order[idx], idColumn), idx);
+        }
+        return index;
+    }
+
+    // EFFECTS:  returns the city listed for every user in <table> (NULL if none)
+    private int[] indexCities(FakebookTable table, int cityColumn) {
+        int[] cities = new int[userRows.length];
+        Arrays.fill(cities, FakebookSnapshot.NULL);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            int user = userIndex.get(table.get(row, FakebookSnapshot.UserID), -1);
+            if (user >= 0) {
+                cities[user] = table.get(row, cityColumn);
+            }
+        }
+        return cities;
+    }
+
+    // MODIFIES: this
+    // EFFECTS:  builds the users tagged in every photo and the photos every user is tagged
+    //           in, both as positions in ID order
+    private void indexTags() {
+        FakebookTable tags = snapshot.getTable(FakebookSnapshot.Tags);
+        int[] photoCount = new int[photoRows.length];
+        int[] userCount = new int[userRows.length];
+        int[] tagPhoto = new int[tags.getRowCount()];
+        int[] tagUser = new int[tags.getRowCount()];
+        for (int row = 0; row < tags.getRowCount(); row++) {
+            tagPhoto[row] = photoIndex.get(tags.get(row, FakebookSnapshot.TagPhotoID), -1);
+            tagUser[row] = userIndex.get(tags.get(row, FakebookSnapshot.TagSubjectID), -1);
+            if (tagPhoto[row] >= 0 && tagUser[row] >= 0) {
+                photoCount[tagPhoto[row]]++;
+                userCount[tagUser[row]]++;
+            }
+        }
+
+        photoTags = new int[photoRows.length][];
+        userPhotos = new int[userRows.length][];
+        for (int photo = 0; photo < photoTags.length; photo++) {
+            photoTags[photo] = new int[photoCount[photo]];
+            photoCount[photo] = 0;
+        }
+        for (int user = 0; user < userPhotos.length; user++) {
+            userPhotos[user] = new int[userCount[user]];
+            userCount[user] = 0;
+        }
+        for (int row = 0; row < tagPhoto.length; row++) {
+            if (tagPhoto[row] >= 0 && tagUser[row] >= 0) {
+                photoTags[tagPhoto[row]][photoCount[tagPhoto[row]]++] = tagUser[row];
+                userPhotos[tagUser[row]][userCount[tagUser[row]]++] = tagPhoto[row];
+            }
+        }
+        for (int photo = 0; photo < photoTags.length; photo++) {
+            photoTags[photo] = sortedDistinct(photoTags[photo]);
+        }
+        for (int user = 0; user < userPhotos.length; user++) {
+            userPhotos[user] = sortedDistinct(userPhotos[user]);
+        }
+    }
+
+    private static int[] sortedDistinct(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int idx = 0; idx < values.length; idx++) {
+            if (size == 0 || values[size - 1] != values[idx]) {
+                values[size++] = values[idx];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    // [Helper Functions]
+    private int userColumn(int user, int column) {
+        return users.get(userRows[user], column);
+    }
+
+    // EFFECTS:  returns <column> of every user, in ID order
+    private int[] userColumn(int column) {
+        int[] values = new int[userRows.length];
+        for (int user = 0; user < userRows.length; user++) {
+            values[user] = userColumn(user, column);
+        }
+        return values;
+    }
+
+    // EFFECTS:  returns the code in names of the text in <column> of every user, in ID order
+    private int[] encodeNames(int column) {
+        int[] codes = new int[userRows.length];
+        for (int user = 0; user < userRows.length; user++) {
+            codes[user] = names.encode(snapshot.text(userColumn(user, column)));
+        }
+        return codes;
+    }
+
+    private UserInfo userInfo(int user) {
+        return new UserInfo(names, userColumn(user, FakebookSnapshot.UserID), firstNames[user], lastNames[user]);
+    }
+
+    // EFFECTS:  returns the row of the album containing <photo>, or -1 if it is not listed
+    private int albumRow(int photo) {
+        int album = photos.get(photoRows[photo], FakebookSnapshot.PhotoAlbumID);
+        return album == FakebookSnapshot.NULL ? -1 : albumIndex.get(album, -1);
+    }
+
+    private PhotoInfo photoInfo(int photo) {
+        int row = photoRows[photo];
+        return new PhotoInfo(photos.get(row, FakebookSnapshot.PhotoID), photos.get(row, FakebookSnapshot.PhotoAlbumID),
+            snapshot.text(photos.get(row, FakebookSnapshot.PhotoLink)),
+            snapshot.text(albums.get(albumRow(photo), FakebookSnapshot.AlbumName)));
+    }
+
+    // EFFECTS:  compares the birth dates of two users by year, month, and day, treating a
+    //           missing part as later than any known one; returns 0 for equal dates
+    private int compareBirthDates(int user1, int user2) {
+        int[] parts = { FakebookSnapshot.YearOfBirth, FakebookSnapshot.MonthOfBirth, FakebookSnapshot.DayOfBirth };
+        for (int part : parts) {
+            int byPart = Integer.compare(nullsLast(userColumn(user1, part)), nullsLast(userColumn(user2, part)));
+            if (byPart != 0) {
+                return byPart;
+            }
+        }
+        return 0;
+    }
+
+    private static int nullsLast(int value) {
+        return value == FakebookSnapshot.NULL ? Integer.MAX_VALUE : value;
+    }
+
+    // Member Variables
+    private final FakebookSnapshot snapshot;
+    private final FakebookTable users;
+    private final FakebookTable photos;
+    private final FakebookTable albums;
+    private final int[] userRows;                 // snapshot row of every user, in ID order
+    private final FakebookIntIntMap userIndex;    // user ID to position in userRows
+    private final FakebookNameDictionary names;   // names of every user, encoded on load
+    private final int[] firstNames;               // names codes of every user, in ID order
+    private final int[] lastNames;
+    private final int[] photoRows;                // snapshot row of every photo, in ID order
+    private final FakebookIntIntMap photoIndex;   // photo ID to position in photoRows
+    private final FakebookIntIntMap albumIndex;   // album ID to snapshot row
+    private final FakebookFriendGraph friends;    // vertexes are positions in userRows
+    private final FakebookFriendRecommender recommender;
+    private final FakebookEventStateCounter eventStates;
+    private final FakebookSiblingJoin siblings;
+    private final FakebookMatchCounter matcher;
+    private final int[] lonelyUserIDs;            // users of Query 2, in ID order
+    private final int[] awayUserIDs;              // users of Query 3, in ID order
+    private final int[] hometownCity;
+    private int[][] photoTags;
+    private int[][] userPhotos;
+}
@@ -0,0 +1,85 @@
+package project2;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+
+/*
+    The MaterializedFakebookOracle class is derived from the FakebookOracle class and answers
+    Queries 0, 1, and 7 from a FakebookAggregates instance, which is kept current by feeding
+    it every change to the Users, Cities, and Events tables; all other queries are passed on
+    to another FakebookOracle.
+*/
+public final class MaterializedFakebookOracle extends FakebookOracle {
+    // [Constructor]
+    // REQUIRES: <aggregates> reflects the data that <delegate> queries
+    public MaterializedFakebookOracle(FakebookOracle delegate, FakebookAggregates aggregates) {
+        this.delegate = delegate;
+        this.aggregates = aggregates;
+    }
+
+    // [Accessors]
+    // EFFECTS:  returns the aggregates, to which changes to the data must be fed
+    public FakebookAggregates getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public BirthMonthInfo findMonthOfBirthInfo() throws SQLException {
+        return aggregates.getBirthMonthInfo();
+    }
+
+    @Override
+    public FirstNameInfo findNameInfo() throws SQLException {
+        return aggregates.getFirstNameInfo();
+    }
+
+    @Override
+    public FakebookArrayList<UserInfo> lonelyUsers() throws SQLException {
+        return delegate.lonelyUsers();
+    }
+
+    @Override
+    public FakebookArrayList<UserInfo> liveAwayFromHome() throws SQLException {
+        return delegate.liveAwayFromHome();
+    }
+
+    @Override
+    public FakebookArrayList<TaggedPhotoInfo> findPhotosWithMostTags(int num) throws SQLException {
+        return delegate.findPhotosWithMostTags(num);
+    }
+
+    @Override
+    public FakebookArrayList<MatchPair> matchMaker(int num, int yearDiff) throws SQLException {
+        return delegate.matchMaker(num, yearDiff);
+    }
+
+    @Override
+    public FakebookArrayList<UsersPair> suggestFriends(int num) throws SQLException {
+        return delegate.suggestFriends(num);
+    }
+
+    @Override
+    public EventStateInfo findEventStates() throws SQLException {
+        return aggregates.getEventStateInfo();
+    }
+
+    @Override
+    public AgeInfo findAgeInfo(long userID) throws SQLException {
+        return delegate.findAgeInfo(userID);
+    }
+
+    @Override
+    public Map<Long, AgeInfo> findAgeInfo(Collection<Long> userIDs) throws SQLException {
+        return delegate.findAgeInfo(userIDs);
+    }
+
+    @Override
+    public FakebookArrayList<SiblingInfo> findPotentialSiblings() throws SQLException {
+        return delegate.findPotentialSiblings();
+    }
+
+    // Member Variables
+    private final FakebookOracle delegate;
+    private final FakebookAggregates aggregates;
+}
@@ -27,11 +27,24 @@ final class FakebookOracleConstants {
     
     // Printing Constants
     public static final String PrintDecoration = ">>>>>>>>>>>>>>>";
+    public static final String LineSeparator = System.lineSeparator();     // what %n prints
     
     // Result Set Constants Renamed
     public static final int AllScroll = ResultSet.TYPE_SCROLL_INSENSITIVE;
+    public static final int ForwardOnly = ResultSet.TYPE_FORWARD_ONLY;
     public static final int ReadOnly = ResultSet.CONCUR_READ_ONLY;
     
+    // Fetch Size Constants (rows transferred per round trip)
+    public static final int SmallFetchSize = 16;                // results of a handful of rows
+    public static final int MediumFetchSize = 100;              // top-N results with wide rows
+    public static final int LargeFetchSize = 500;               // lists of users or names
+    
+    // Batch Size Constants
+    public static final int BatchSize = 500;                    // IDs bound per IN list, under Oracle's limit of 1000
+    
+    // Cache Size Constants
+    public static final int UserCacheSize = 50000;              // users kept by a FakebookUserCache
+    
     // [Constructor]
     // EFFECTS:  throws an AssertionError
     private FakebookOracleConstants() {
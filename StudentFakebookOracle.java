@@ -1,20 +1,82 @@
 package project2;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /*
     The StudentFakebookOracle class is derived from the FakebookOracle class and implements
     the abstract query functions that investigate the database provided via the <connection>
-    parameter of the constructor to discover specific information.
+    or <pool> parameter of the constructor to discover specific information. Every query
+    borrows a connection from the pool for its own duration and runs parameterized SQL
+    through PreparedStatements, which the pool caches per connection.
 */
 public final class StudentFakebookOracle extends FakebookOracle {
     // [Constructor]
     // REQUIRES: <connection> is a valid JDBC connection
     public StudentFakebookOracle(Connection connection) {
-        oracle = connection;
+        this(FakebookConnectionPool.wrap(connection));
+    }
+
+    // [Constructor]
+    // REQUIRES: <pool> is an open connection pool
+    // EFFECTS:  each query borrows its own connection from <pool>, so this instance may be
+    //           shared by concurrent callers
+    public StudentFakebookOracle(FakebookConnectionPool pool) {
+        this.pool = pool;
+        resultSetType = FakebookOracleConstants.ForwardOnly;
+    }
+
+    // [Execution Mode Functions]
+    // MODIFIES: this
+    // EFFECTS:  setStreaming chooses between forward-only cursors that stream rows from the
+    //           server (the default) and scroll-insensitive cursors that the driver caches
+    //           client-side in full; every query walks its results exactly once either way.
+    //           setFetchSize overrides the per-query number of rows fetched per round trip;
+    //           0 restores the per-query defaults
+    public void setStreaming(boolean streaming) {
+        resultSetType = streaming ? FakebookOracleConstants.ForwardOnly : FakebookOracleConstants.AllScroll;
+    }
+
+    public void setFetchSize(int rows) {
+        fetchSizeOverride = rows;
+    }
+    
+    // [Error Mode Function]
+    // MODIFIES: this
+    // EFFECTS:  when <propagate> is true, a query that fails throws its SQLException instead
+    //           of printing it and returning a placeholder or partial result (the default),
+    //           so that callers which keep results, such as CachingFakebookOracle, can tell
+    //           a failure from an answer; a user without friends is not a failure, and
+    //           both findAgeInfo functions report the ERROR result for one either way
+    public void setPropagateErrors(boolean propagate) {
+        propagateErrors = propagate;
+    }
+    
+    // EFFECTS:  records the statements of every query in <metrics> from now on; null stops
+    //           recording
+    public void setMetrics(FakebookJdbcMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    // [User Cache Functions]
+    // EFFECTS:  getUserCache returns the cache through which Queries 4, 5, 6, 8, and 9 turn
+    //           user IDs into UserInfo instances; preloadUsers fills it with one scan of the
+    //           Users table and returns how many users were cached
+    public FakebookUserCache getUserCache() {
+        return userCache;
+    }
+    
+    public int preloadUsers() throws SQLException {
+        try (Connection oracle = borrow("preloadUsers")) {
+            return userCache.preload(oracle);
+        }
     }
     
     @Override
@@ -32,57 +94,63 @@ public final class StudentFakebookOracle extends FakebookOracle {
     // mechanisms for opening up a statement, executing a query, walking through results, extracting
     // data, and more things that you will need to do for the remaining nine queries
     public BirthMonthInfo findMonthOfBirthInfo() throws SQLException {
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findMonthOfBirthInfo")) {
             // Step 1
             // ------------
             // * Find the total number of users with birth month info
             // * Find the month in which the most users were born
             // * Find the month in which the fewest (but at least 1) users were born
-            ResultSet rst = stmt.executeQuery(
+            PreparedStatement stmt = prepare(oracle,
                 "SELECT COUNT(*) AS Birthed, Month_of_Birth " +         // select birth months and number of uses with that birth month
                 "FROM " + UsersTable + " " +                            // from all users
                 "WHERE Month_of_Birth IS NOT NULL " +                   // for which a birth month is available
                 "GROUP BY Month_of_Birth " +                            // group into buckets by birth month
-                "ORDER BY Birthed DESC, Month_of_Birth ASC");           // sort by users born in that month, descending; break ties by birth month
+                "ORDER BY Birthed DESC, Month_of_Birth ASC",            // sort by users born in that month, descending; break ties by birth month
+                FakebookOracleConstants.SmallFetchSize);
+            ResultSet rst = stmt.executeQuery();
             
             int mostMonth = 0;
             int leastMonth = 0;
             int total = 0;
+            boolean first = true;
             while (rst.next()) {                       // step through result rows/records one by one
-                if (rst.isFirst()) {                   // if first record
+                if (first) {                           // if first record
                     mostMonth = rst.getInt(2);         //   it is the month with the most
+                    first = false;
                 }
-                if (rst.isLast()) {                    // if last record
-                    leastMonth = rst.getInt(2);        //   it is the month with the least
-                }
+                leastMonth = rst.getInt(2);            // the last record read is the month with the least
                 total += rst.getInt(1);                // get the first field's value as an integer
             }
             BirthMonthInfo info = new BirthMonthInfo(total, mostMonth, leastMonth);
+            rst.close();
+            stmt.close();                            // hands the statement back to the connection's statement cache
             
             // Step 2
             // ------------
             // * Get the names of users born in the most popular birth month
-            rst = stmt.executeQuery(
+            stmt = prepare(oracle,
                 "SELECT User_ID, First_Name, Last_Name " +                // select ID, first name, and last name
                 "FROM " + UsersTable + " " +                              // from all users
-                "WHERE Month_of_Birth = " + mostMonth + " " +             // born in the most popular birth month
-                "ORDER BY User_ID");                                      // sort smaller IDs first
+                "WHERE Month_of_Birth = ? " +                             // born in the given birth month
+                "ORDER BY User_ID",                                       // sort smaller IDs first
+                FakebookOracleConstants.LargeFetchSize);
+            stmt.setInt(1, mostMonth);                                    // bind the most popular birth month
+            rst = stmt.executeQuery();
                 
             while (rst.next()) {
-                info.addMostPopularBirthMonthUser(new UserInfo(rst.getLong(1), rst.getString(2), rst.getString(3)));
+                info.addMostPopularBirthMonthUser(new UserInfo(names, rst.getLong(1), rst.getString(2), rst.getString(3)));
             }
 
             // Step 3
             // ------------
-            // * Get the names of users born in the least popular birth month
-            rst = stmt.executeQuery(
-                "SELECT User_ID, First_Name, Last_Name " +                // select ID, first name, and last name
-                "FROM " + UsersTable + " " +                              // from all users
-                "WHERE Month_of_Birth = " + leastMonth + " " +            // born in the least popular birth month
-                "ORDER BY User_ID");                                      // sort smaller IDs first
+            // * Get the names of users born in the least popular birth month, reusing the
+            //   statement from Step 2 with a different parameter
+            rst.close();
+            stmt.setInt(1, leastMonth);                                   // bind the least popular birth month
+            rst = stmt.executeQuery();
                 
             while (rst.next()) {
-                info.addLeastPopularBirthMonthUser(new UserInfo(rst.getLong(1), rst.getString(2), rst.getString(3)));
+                info.addLeastPopularBirthMonthUser(new UserInfo(names, rst.getLong(1), rst.getString(2), rst.getString(3)));
             }
 
             // Step 4
@@ -95,6 +163,9 @@ public final class StudentFakebookOracle extends FakebookOracle {
 
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
             return new BirthMonthInfo(-1, -1, -1);
         }
@@ -108,7 +179,7 @@ public final class StudentFakebookOracle extends FakebookOracle {
     //        (C) The first name held by the most users
     //        (D) The number of users whose first name is that identified in (C)
     public FirstNameInfo findNameInfo() throws SQLException {
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findNameInfo")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
@@ -128,38 +199,50 @@ public final class StudentFakebookOracle extends FakebookOracle {
 
             // step 1
             // find the first names ordered by their length (asc)
-            ResultSet rst = stmt.executeQuery(
+            PreparedStatement stmt = prepare(oracle,
                 "SELECT LENGTH(First_Name) AS len, First_Name " + 
                 "FROM " + UsersTable + " " + 
                 "GROUP BY First_Name " + 
-                "ORDER BY len DESC, First_Name ASC");
+                "ORDER BY len DESC, First_Name ASC",
+                FakebookOracleConstants.LargeFetchSize);
+            ResultSet rst = stmt.executeQuery();
 
+            // one pass: the names of the first length seen are the longest ones; the names of
+            // the current length are kept until a shorter length shows up, so the names left
+            // over at the end are the shortest ones
             int longest = 0;
             int shortest = 0;
+            boolean first = true;
+            ArrayList<String> shortestNames = new ArrayList<String>();
 
             while (rst.next()) {
-                if (rst.isFirst()) {
-                    longest = rst.getInt(1);
+                int length = rst.getInt(1);
+                String name = rst.getString(2);
+                if (first) {
+                    longest = length;
+                    shortest = length;
+                    first = false;
+                }
+                if (length == longest) {
+                    info.addLongName(name);
                 }
-                if (rst.isLast()) {
-                    shortest = rst.getInt(1);
+                if (length != shortest) {
+                    shortest = length;
+                    shortestNames.clear();
                 }
+                shortestNames.add(name);
             }
 
-            rst.beforeFirst();
-
-            while (rst.next()) {
-                if (rst.getInt(1) == longest) {
-                    info.addLongName(rst.getString(2));
-                }
-                if (rst.getInt(1) == shortest) {
-                    info.addShortName(rst.getString(2));
-                }
+            for (String name : shortestNames) {
+                info.addShortName(name);
             }
 
+            rst.close();
+            stmt.close();
+
             // step 2
             // find the common first name
-            rst = stmt.executeQuery(
+            stmt = prepare(oracle,
                 "SELECT First_Name, COUNT(User_ID) AS Frequency " + 
                 "FROM " + UsersTable + " " + 
                 "GROUP BY First_Name " + 
@@ -167,13 +250,13 @@ public final class StudentFakebookOracle extends FakebookOracle {
                 "SELECT MAX(COUNT(User_ID)) " + 
                 "FROM " + UsersTable + " " + 
                 "GROUP BY First_Name) " + 
-                "ORDER BY First_Name DESC");
+                "ORDER BY First_Name DESC",
+                FakebookOracleConstants.LargeFetchSize);
+            rst = stmt.executeQuery();
             
             int commonNameNum = 0;
             while (rst.next()) {
-                if (rst.isFirst()) {
-                    commonNameNum = rst.getInt(2);
-                }
+                commonNameNum = rst.getInt(2);      // every row has the same (maximum) count
                 info.addCommonName(rst.getString(1));
             }
 
@@ -185,6 +268,9 @@ public final class StudentFakebookOracle extends FakebookOracle {
             return info;                // placeholder for compilation
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
             return new FirstNameInfo();
         }
@@ -200,12 +286,12 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<UserInfo> lonelyUsers() throws SQLException {
         FakebookArrayList<UserInfo> results = new FakebookArrayList<UserInfo>(", ");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("lonelyUsers")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo u1 = new UserInfo(15, "Abraham", "Lincoln");
-                UserInfo u2 = new UserInfo(39, "Margaret", "Thatcher");
+                UserInfo u1 = new UserInfo(names, 15, "Abraham", "Lincoln");
+                UserInfo u2 = new UserInfo(names, 39, "Margaret", "Thatcher");
                 results.add(u1);
                 results.add(u2);
             */
@@ -219,23 +305,28 @@ public final class StudentFakebookOracle extends FakebookOracle {
             WHERE U1.User_ID = F1.User1_ID OR U1.User_ID = F1.User2_ID);
             */
 
-            ResultSet rst = stmt.executeQuery(
+            PreparedStatement stmt = prepare(oracle,
                 "(SELECT User_ID, First_Name, Last_Name " + 
                 "FROM " + UsersTable + " " + 
                 "MINUS " + 
                 "SELECT U1.User_ID, U1.First_Name, U1.Last_Name " +
                 "FROM " + UsersTable + " U1, " + FriendsTable + " F1 " +
                 "WHERE U1.User_ID = F1.User1_ID OR U1.User_ID = F1.User2_ID) " + 
-                "ORDER BY User_ID ASC ");
+                "ORDER BY User_ID ASC ",
+                FakebookOracleConstants.LargeFetchSize);
+            ResultSet rst = stmt.executeQuery();
 
             while (rst.next()) {
-                results.add(new UserInfo(rst.getLong(1), rst.getString(2), rst.getString(3)));
+                results.add(new UserInfo(names, rst.getLong(1), rst.getString(2), rst.getString(3)));
             }
 
             rst.close();
             stmt.close();
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
@@ -250,23 +341,25 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<UserInfo> liveAwayFromHome() throws SQLException {
         FakebookArrayList<UserInfo> results = new FakebookArrayList<UserInfo>(", ");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("liveAwayFromHome")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo u1 = new UserInfo(9, "Meryl", "Streep");
-                UserInfo u2 = new UserInfo(104, "Tom", "Hanks");
+                UserInfo u1 = new UserInfo(names, 9, "Meryl", "Streep");
+                UserInfo u2 = new UserInfo(names, 104, "Tom", "Hanks");
                 results.add(u1);
                 results.add(u2);
             */
-            ResultSet rst = stmt.executeQuery(
+            PreparedStatement stmt = prepare(oracle,
                 "SELECT U.User_ID, U.First_Name, U.Last_Name " + 
                 "FROM " + UsersTable + " U, " + CurrentCitiesTable + " C, " + HometownCitiesTable + " H " +
                 "WHERE U.User_ID = C.User_ID AND U.User_ID = H.User_ID AND C.Current_City_ID <> H.Hometown_City_ID " + 
-                "ORDER BY U.User_ID ASC");
+                "ORDER BY U.User_ID ASC",
+                FakebookOracleConstants.LargeFetchSize);
+            ResultSet rst = stmt.executeQuery();
 
             while (rst.next()) {
-                results.add(new UserInfo(rst.getInt(1), rst.getString(2), rst.getString(3)));
+                results.add(new UserInfo(names, rst.getInt(1), rst.getString(2), rst.getString(3)));
             }
 
             rst.close();
@@ -274,6 +367,9 @@ public final class StudentFakebookOracle extends FakebookOracle {
 
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
@@ -290,14 +386,14 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<TaggedPhotoInfo> findPhotosWithMostTags(int num) throws SQLException {
         FakebookArrayList<TaggedPhotoInfo> results = new FakebookArrayList<TaggedPhotoInfo>("\n");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findPhotosWithMostTags")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
                 PhotoInfo p = new PhotoInfo(80, 5, "www.photolink.net", "Winterfell S1");
-                UserInfo u1 = new UserInfo(3901, "Jon", "Snow");
-                UserInfo u2 = new UserInfo(3902, "Arya", "Stark");
-                UserInfo u3 = new UserInfo(3903, "Sansa", "Stark");
+                UserInfo u1 = new UserInfo(names, 3901, "Jon", "Snow");
+                UserInfo u2 = new UserInfo(names, 3902, "Arya", "Stark");
+                UserInfo u3 = new UserInfo(names, 3903, "Sansa", "Stark");
                 TaggedPhotoInfo tp = new TaggedPhotoInfo(p);
                 tp.addTaggedUser(u1);
                 tp.addTaggedUser(u2);
@@ -315,39 +411,66 @@ public final class StudentFakebookOracle extends FakebookOracle {
             )
             WHERE ROWNUM <= 5
             */
-            Statement stmt1 = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly);
-
-            ResultSet rst = stmt.executeQuery(
-                " SELECT PHOTO_ID, ALBUM_ID, PHOTO_LINK, ALBUM_NAME " + 
+            // The top <num> photos and the users tagged in them come back in a single round
+            // trip: one row per (photo, tagged user), ordered the same way the photos are
+            // ranked, so consecutive rows with the same photo ID belong to the same photo.
+            // The outer join keeps a top photo even if none of its tagged users is in Users.
+            // Only the IDs of the tagged users are selected; their names come from userCache.
+            PreparedStatement stmt = prepare(oracle,
+                " SELECT TP.PHOTO_ID, TP.ALBUM_ID, TP.PHOTO_LINK, TP.ALBUM_NAME, TU.USER_ID " + 
                 " FROM ( " +
-                "   SELECT P.PHOTO_ID, P.ALBUM_ID, P.PHOTO_LINK, A.ALBUM_NAME, COUNT(P.PHOTO_ID) AS TAG_NUM " + 
-                "   FROM " + PhotosTable + " P, " + TagsTable + " T, " + AlbumsTable + " A " +
-                "   WHERE P.PHOTO_ID = T.TAG_PHOTO_ID AND P.ALBUM_ID = A.ALBUM_ID " +
-                "   GROUP BY P.PHOTO_ID, P.ALBUM_ID, P.PHOTO_LINK, A.ALBUM_NAME " +
-                "   ORDER BY TAG_NUM DESC, P.PHOTO_ID ASC) " +
-                " WHERE ROWNUM <= " + num);
+                "   SELECT PHOTO_ID, ALBUM_ID, PHOTO_LINK, ALBUM_NAME, TAG_NUM " +
+                "   FROM ( " +
+                "     SELECT P.PHOTO_ID, P.ALBUM_ID, P.PHOTO_LINK, A.ALBUM_NAME, COUNT(P.PHOTO_ID) AS TAG_NUM " + 
+                "     FROM " + PhotosTable + " P, " + TagsTable + " T, " + AlbumsTable + " A " +
+                "     WHERE P.PHOTO_ID = T.TAG_PHOTO_ID AND P.ALBUM_ID = A.ALBUM_ID " +
+                "     GROUP BY P.PHOTO_ID, P.ALBUM_ID, P.PHOTO_LINK, A.ALBUM_NAME " +
+                "     ORDER BY TAG_NUM DESC, P.PHOTO_ID ASC) " +
+                "   WHERE ROWNUM <= ?) TP " +
+                " LEFT OUTER JOIN ( " +
+                "   SELECT T.TAG_PHOTO_ID, U.USER_ID " +
+                "   FROM " + TagsTable + " T, " + UsersTable + " U " +
+                "   WHERE U.USER_ID = T.TAG_SUBJECT_ID) TU " +
+                " ON TU.TAG_PHOTO_ID = TP.PHOTO_ID " +
+                " ORDER BY TP.TAG_NUM DESC, TP.PHOTO_ID ASC, TU.USER_ID ASC",
+                FakebookOracleConstants.MediumFetchSize);
+
+            stmt.setInt(1, num);
+            ResultSet rst = stmt.executeQuery();
 
+            TaggedPhotoInfo tp = null;
+            int photoID = 0;
+            ArrayList<Long> taggedIDs = new ArrayList<Long>();
+            ArrayList<TaggedPhotoInfo> taggedIn = new ArrayList<TaggedPhotoInfo>();
             while (rst.next()) {
-                PhotoInfo p = new PhotoInfo(rst.getInt(1), rst.getInt(2), rst.getString(3), rst.getString(4));
-                TaggedPhotoInfo tp = new TaggedPhotoInfo(p);
-                ResultSet rst1 = stmt1.executeQuery(
-                    " SELECT U.User_ID, U.First_Name, U.Last_Name " + 
-                    " FROM " + UsersTable + " U, " + TagsTable + " T, " + PhotosTable + " P " +
-                    " WHERE U.User_ID = T.TAG_SUBJECT_ID AND P.PHOTO_ID = T.TAG_PHOTO_ID " + 
-                    " AND P.PHOTO_ID = " + rst.getInt(1) + 
-                    " ORDER BY U.User_ID ASC");
-                while (rst1.next()) {
-                    tp.addTaggedUser(new UserInfo(rst1.getInt(1), rst1.getString(2), rst1.getString(3)));
+                if (tp == null || rst.getInt(1) != photoID) {
+                    photoID = rst.getInt(1);
+                    PhotoInfo p = new PhotoInfo(photoID, rst.getInt(2), rst.getString(3), rst.getString(4));
+                    tp = new TaggedPhotoInfo(p);
+                    results.add(tp);
+                }
+                long userID = rst.getLong(5);
+                if (!rst.wasNull()) {
+                    taggedIDs.add(userID);
+                    taggedIn.add(tp);
                 }
-                results.add(tp);
             }
 
-            stmt1.close();
-
             rst.close();
             stmt.close();
+
+            Map<Long, UserInfo> users = userCache.resolve(oracle, taggedIDs);
+            for (int idx = 0; idx < taggedIDs.size(); idx++) {
+                UserInfo user = users.get(taggedIDs.get(idx));
+                if (user != null) {
+                    taggedIn.get(idx).addTaggedUser(user);
+                }
+            }
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
@@ -369,56 +492,90 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<MatchPair> matchMaker(int num, int yearDiff) throws SQLException {
         FakebookArrayList<MatchPair> results = new FakebookArrayList<MatchPair>("\n");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("matchMaker")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo u1 = new UserInfo(93103, "Romeo", "Montague");
-                UserInfo u2 = new UserInfo(93113, "Juliet", "Capulet");
+                UserInfo u1 = new UserInfo(names, 93103, "Romeo", "Montague");
+                UserInfo u2 = new UserInfo(names, 93113, "Juliet", "Capulet");
                 MatchPair mp = new MatchPair(u1, 1597, u2, 1597);
                 PhotoInfo p = new PhotoInfo(167, 309, "www.photolink.net", "Tragedy");
                 mp.addSharedPhoto(p);
                 results.add(mp);
             */
 
-            Statement stmt1 = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly);
-
-            ResultSet rst = stmt.executeQuery(
-                "SELECT U1.User_ID, U1.First_Name, U1.Last_Name, U1.Year_of_Birth, U2.User_ID, U2.First_Name, U2.Last_Name, U2.Year_of_Birth, COUNT(*) AS PhotoNum " + 
-                "FROM " + UsersTable + " U1, " + UsersTable + " U2, " + TagsTable + " T1, " + TagsTable + " T2 " + 
-                "WHERE U1.User_ID < U2.User_ID AND U1.Gender = U2.Gender AND T1.Tag_Photo_ID = T2.Tag_Photo_ID AND T1.Tag_Subject_ID = U1.User_ID AND " + 
-                "T2.Tag_Subject_ID = U2.User_ID AND ABS(U1.Year_of_Birth - U2.Year_of_Birth) < " + yearDiff + " AND " + 
-                "(SELECT COUNT(*) FROM " + FriendsTable + " F WHERE F.User1_ID = U1.User_ID AND F.User2_ID = U2.User_ID) = 0 " + 
-                "GROUP BY U1.User_ID, U1.First_Name, U1.Last_Name, U1.Year_of_Birth, U2.User_ID, U2.First_Name, U2.Last_Name, U2.Year_of_Birth " + 
-                "ORDER BY PhotoNum DESC, U1.User_ID ASC, U2.User_ID ASC");
-
-            int count = 0;
-
-            while (rst.next() && count < num) {
-                UserInfo u1 = new UserInfo(rst.getInt(1), rst.getString(2), rst.getString(3));
-                UserInfo u2 = new UserInfo(rst.getInt(5), rst.getString(6), rst.getString(7));
-                MatchPair mp = new MatchPair(u1, rst.getInt(4), u2, rst.getInt(8));
-
-                ResultSet rst1 = stmt1.executeQuery(
-                    "SELECT P.Photo_ID, P.Photo_Link, A.Album_ID, A.Album_Name " + 
-                    "FROM " + TagsTable + " T1, " + TagsTable + " T2, " + PhotosTable + " P, " + AlbumsTable + " A, " + UsersTable + " U1, " + UsersTable + " U2 " + 
-                    "WHERE U1.User_ID = " + rst.getInt(1) + " AND U2.User_ID = " + rst.getInt(5) + " AND " + 
-                    "T1.Tag_Photo_ID = T2.Tag_Photo_ID AND T1.Tag_Subject_ID = U1.User_ID AND T2.Tag_Subject_ID = U2.User_ID AND " + 
-                    "T1.Tag_Photo_ID = P.Photo_ID AND P.Album_ID = A.Album_ID " + 
-                    "ORDER BY P.Photo_ID ASC");
-
-                while (rst1.next()) {
-                    mp.addSharedPhoto(new PhotoInfo(rst1.getInt(1), rst1.getInt(3), rst1.getString(2), rst1.getString(4)));
-                }
+            // The ranked pair list is cut to <num> rows on the server (MP), and the photos
+            // shared by every selected pair are joined onto it in the same statement, so the
+            // whole query is one round trip. Rows come back ordered by pair rank and then by
+            // photo ID; consecutive rows with the same two user IDs belong to the same pair.
+            // Only user IDs are selected; the pairs are built once userCache has their names.
+            PreparedStatement stmt = prepare(oracle,
+                "SELECT MP.User1_ID, MP.User1_Year, MP.User2_ID, MP.User2_Year, " + 
+                "SP.Photo_ID, SP.Photo_Link, SP.Album_ID, SP.Album_Name " + 
+                "FROM ( " + 
+                "  SELECT * FROM ( " + 
+                "    SELECT U1.User_ID AS User1_ID, U1.Year_of_Birth AS User1_Year, " + 
+                "    U2.User_ID AS User2_ID, U2.Year_of_Birth AS User2_Year, COUNT(*) AS PhotoNum " + 
+                "    FROM " + UsersTable + " U1, " + UsersTable + " U2, " + TagsTable + " T1, " + TagsTable + " T2 " + 
+                "    WHERE U1.User_ID < U2.User_ID AND U1.Gender = U2.Gender AND T1.Tag_Photo_ID = T2.Tag_Photo_ID AND T1.Tag_Subject_ID = U1.User_ID AND " + 
+                "    T2.Tag_Subject_ID = U2.User_ID AND ABS(U1.Year_of_Birth - U2.Year_of_Birth) < ? AND " + 
+                "    (SELECT COUNT(*) FROM " + FriendsTable + " F WHERE F.User1_ID = U1.User_ID AND F.User2_ID = U2.User_ID) = 0 " + 
+                "    GROUP BY U1.User_ID, U1.Year_of_Birth, U2.User_ID, U2.Year_of_Birth " + 
+                "    ORDER BY PhotoNum DESC, U1.User_ID ASC, U2.User_ID ASC) " + 
+                "  WHERE ROWNUM <= ?) MP " + 
+                "LEFT OUTER JOIN ( " + 
+                "  SELECT T1.Tag_Subject_ID AS Subject1_ID, T2.Tag_Subject_ID AS Subject2_ID, P.Photo_ID, P.Photo_Link, A.Album_ID, A.Album_Name " + 
+                "  FROM " + TagsTable + " T1, " + TagsTable + " T2, " + PhotosTable + " P, " + AlbumsTable + " A " + 
+                "  WHERE T1.Tag_Photo_ID = T2.Tag_Photo_ID AND T1.Tag_Photo_ID = P.Photo_ID AND P.Album_ID = A.Album_ID) SP " + 
+                "ON SP.Subject1_ID = MP.User1_ID AND SP.Subject2_ID = MP.User2_ID " + 
+                "ORDER BY MP.PhotoNum DESC, MP.User1_ID ASC, MP.User2_ID ASC, SP.Photo_ID ASC",
+                FakebookOracleConstants.MediumFetchSize);
 
-                results.add(mp);
-                count = count + 1;
+            stmt.setInt(1, yearDiff);
+            stmt.setInt(2, num);
+            ResultSet rst = stmt.executeQuery();
+
+            // pairs holds user1 ID, user1 year, user2 ID, user2 year for every pair
+            ArrayList<long[]> pairs = new ArrayList<long[]>();
+            ArrayList<ArrayList<PhotoInfo>> photos = new ArrayList<ArrayList<PhotoInfo>>();
+            ArrayList<Long> userIDs = new ArrayList<Long>();
+            while (rst.next()) {
+                long[] pair = pairs.isEmpty() ? null : pairs.get(pairs.size() - 1);
+                if (pair == null || rst.getLong(1) != pair[0] || rst.getLong(3) != pair[2]) {
+                    pair = new long[] { rst.getLong(1), rst.getInt(2), rst.getLong(3), rst.getInt(4) };
+                    pairs.add(pair);
+                    photos.add(new ArrayList<PhotoInfo>());
+                    userIDs.add(pair[0]);
+                    userIDs.add(pair[2]);
+                }
+                int photoID = rst.getInt(5);
+                if (!rst.wasNull()) {
+                    photos.get(photos.size() - 1).add(new PhotoInfo(photoID, rst.getInt(7), rst.getString(6), rst.getString(8)));
+                }
             }
 
             rst.close();
             stmt.close();
+
+            Map<Long, UserInfo> users = userCache.resolve(oracle, userIDs);
+            for (int idx = 0; idx < pairs.size(); idx++) {
+                long[] pair = pairs.get(idx);
+                UserInfo u1 = users.get(pair[0]);
+                UserInfo u2 = users.get(pair[2]);
+                if (u1 == null || u2 == null) {
+                    continue;                   // deleted since the pairs were ranked
+                }
+                MatchPair mp = new MatchPair(u1, pair[1], u2, pair[3]);
+                for (PhotoInfo photo : photos.get(idx)) {
+                    mp.addSharedPhoto(photo);
+                }
+                results.add(mp);
+            }
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
@@ -436,13 +593,13 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<UsersPair> suggestFriends(int num) throws SQLException {
         FakebookArrayList<UsersPair> results = new FakebookArrayList<UsersPair>("\n");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("suggestFriends")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo u1 = new UserInfo(16, "The", "Hacker");
-                UserInfo u2 = new UserInfo(80, "Dr.", "Marbles");
-                UserInfo u3 = new UserInfo(192, "Digit", "Le Boid");
+                UserInfo u1 = new UserInfo(names, 16, "The", "Hacker");
+                UserInfo u2 = new UserInfo(names, 80, "Dr.", "Marbles");
+                UserInfo u3 = new UserInfo(names, 192, "Digit", "Le Boid");
                 UsersPair up = new UsersPair(u1, u2);
                 up.addSharedFriend(u3);
                 results.add(up);
@@ -481,13 +638,18 @@ public final class StudentFakebookOracle extends FakebookOracle {
                 ORDER BY USER_NUM DESC, U1.USER_ID ASC, U3.USER_ID ASC
             )
             WHERE ROWNUM <= 5;*/
-            Statement stmt1 = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly);
-
-            ResultSet rst = stmt.executeQuery(
-                " SELECT USER1_ID, USER1_FN, USER1_LN, USER2_ID, USER2_FN, USER2_LN " + 
+            // Pairs holds the top <num> pairs, ranked exactly as before. Adjacent lists every
+            // friendship in both directions, so the common friends of all selected pairs are
+            // found with plain equi-joins in the same statement: one round trip in total.
+            // Rows come back ordered by pair rank and then by common friend ID; consecutive
+            // rows with the same two user IDs belong to the same pair. Every selected pair has
+            // at least one common friend, since that is how it was ranked. Only user IDs are
+            // selected; the pairs are built once userCache has their names.
+            PreparedStatement stmt = prepare(oracle,
+                " WITH Pairs AS ( " +
+                " SELECT USER1_ID, USER2_ID, USER_NUM " + 
                 " FROM ( " +
-                "   SELECT U1.USER_ID AS USER1_ID, U1.First_Name AS USER1_FN, U1.Last_Name AS USER1_LN, U3.USER_ID AS USER2_ID, " + 
-                "          U3.First_Name AS USER2_FN, U3.Last_Name AS USER2_LN, COUNT(U1.USER_ID) AS USER_NUM " + 
+                "   SELECT U1.USER_ID AS USER1_ID, U3.USER_ID AS USER2_ID, COUNT(U1.USER_ID) AS USER_NUM " + 
                 "   FROM " + UsersTable + " U1, " + UsersTable + " U2, " + UsersTable + " U3, " + FriendsTable + " F1, " + FriendsTable + " F2 " +
                 "   WHERE U1.USER_ID < U3.USER_ID " +
                 "   AND ((U1.USER_ID = F1.USER1_ID AND U2.USER_ID = F1.USER2_ID) OR (U1.USER_ID = F1.USER2_ID AND U2.USER_ID = F1.USER1_ID)) " +
@@ -496,38 +658,65 @@ public final class StudentFakebookOracle extends FakebookOracle {
                 "      SELECT F3.USER1_ID " +
                 "      FROM " + FriendsTable + " F3 " +
                 "      WHERE F3.USER1_ID = U1.USER_ID AND U3.USER_ID = F3.USER2_ID) " +
-                "   GROUP BY U1.USER_ID, U1.First_Name, U1.Last_Name, U3.USER_ID, U3.First_Name, U3.Last_Name " +
+                "   GROUP BY U1.USER_ID, U3.USER_ID " +
                 "   ORDER BY USER_NUM DESC, U1.USER_ID ASC, U3.USER_ID ASC) " +
-                " WHERE ROWNUM <= " + num);
-
-            while (rst.next()) {
-                UserInfo u1 = new UserInfo(rst.getInt(1), rst.getString(2), rst.getString(3));
-                UserInfo u2 = new UserInfo(rst.getInt(4), rst.getString(5), rst.getString(6));
-                UsersPair up = new UsersPair(u1, u2);
+                " WHERE ROWNUM <= ?), " +
+                " Adjacent AS ( " +
+                "   SELECT USER1_ID AS USER_ID, USER2_ID AS FRIEND_ID FROM " + FriendsTable + " " +
+                "   UNION ALL " +
+                "   SELECT USER2_ID AS USER_ID, USER1_ID AS FRIEND_ID FROM " + FriendsTable + ") " +
+                " SELECT P.USER1_ID, P.USER2_ID, M.USER_ID " +
+                " FROM Pairs P, Adjacent A1, Adjacent A2, " + UsersTable + " M " +
+                " WHERE A1.USER_ID = P.USER1_ID AND A2.USER_ID = P.USER2_ID " +
+                " AND A1.FRIEND_ID = A2.FRIEND_ID AND M.USER_ID = A1.FRIEND_ID " +
+                " ORDER BY P.USER_NUM DESC, P.USER1_ID ASC, P.USER2_ID ASC, M.USER_ID ASC",
+                FakebookOracleConstants.MediumFetchSize);
 
-                ResultSet rst1 = stmt1.executeQuery(
-                    " SELECT U2.USER_ID, U2.First_Name, U2.Last_Name " + 
-                    " FROM " + UsersTable + " U1, " + UsersTable + " U2, " + UsersTable + " U3, " + FriendsTable + " F1, " + FriendsTable + " F2 " +
-                    " WHERE U1.User_ID = " + rst.getInt(1) + " AND U3.User_ID = " + rst.getInt(4) + 
-                    " AND ((U1.USER_ID = F1.USER1_ID AND U2.USER_ID = F1.USER2_ID) OR (U1.USER_ID = F1.USER2_ID AND U2.USER_ID = F1.USER1_ID)) " +
-                    " AND ((U3.USER_ID = F2.USER1_ID AND U2.USER_ID = F2.USER2_ID) OR (U3.USER_ID = F2.USER2_ID AND U2.USER_ID = F2.USER1_ID)) " +
-                    " ORDER BY U2.USER_ID ASC");
+            stmt.setInt(1, num);
+            ResultSet rst = stmt.executeQuery();
 
-                while (rst1.next()) {
-                    up.addSharedFriend(new UserInfo(rst1.getInt(1), rst1.getString(2), rst1.getString(3)));
+            // pairs holds the two user IDs of every pair, friends their common friends' IDs
+            ArrayList<long[]> pairs = new ArrayList<long[]>();
+            ArrayList<ArrayList<Long>> friends = new ArrayList<ArrayList<Long>>();
+            ArrayList<Long> userIDs = new ArrayList<Long>();
+            while (rst.next()) {
+                long[] pair = pairs.isEmpty() ? null : pairs.get(pairs.size() - 1);
+                if (pair == null || rst.getLong(1) != pair[0] || rst.getLong(2) != pair[1]) {
+                    pair = new long[] { rst.getLong(1), rst.getLong(2) };
+                    pairs.add(pair);
+                    friends.add(new ArrayList<Long>());
+                    userIDs.add(pair[0]);
+                    userIDs.add(pair[1]);
                 }
-
-                results.add(up);
-
+                friends.get(friends.size() - 1).add(rst.getLong(3));
+                userIDs.add(rst.getLong(3));
             }
 
-            stmt1.close();
-
             rst.close();
             stmt.close();
 
+            Map<Long, UserInfo> users = userCache.resolve(oracle, userIDs);
+            for (int idx = 0; idx < pairs.size(); idx++) {
+                UserInfo u1 = users.get(pairs.get(idx)[0]);
+                UserInfo u2 = users.get(pairs.get(idx)[1]);
+                if (u1 == null || u2 == null) {
+                    continue;                   // deleted since the pairs were ranked
+                }
+                UsersPair up = new UsersPair(u1, u2);
+                for (Long friendID : friends.get(idx)) {
+                    UserInfo friend = users.get(friendID);
+                    if (friend != null) {
+                        up.addSharedFriend(friend);
+                    }
+                }
+                results.add(up);
+            }
+
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
@@ -540,7 +729,7 @@ public final class StudentFakebookOracle extends FakebookOracle {
     // GOALS: (A) Find the name of the state or states in which the most events are held
     //        (B) Find the number of events held in the states identified in (A)
     public EventStateInfo findEventStates() throws SQLException {
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findEventStates")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
@@ -551,7 +740,7 @@ public final class StudentFakebookOracle extends FakebookOracle {
                 return info;
             */
 
-            ResultSet rst = stmt.executeQuery(
+            PreparedStatement stmt = prepare(oracle,
                 "SELECT C.State_Name, COUNT(E.Event_ID) AS EventNum " + 
                 "FROM " + CitiesTable + " C, " + EventsTable + " E " + 
                 "WHERE E.Event_City_ID = C.City_ID " + 
@@ -560,7 +749,9 @@ public final class StudentFakebookOracle extends FakebookOracle {
                 "SELECT MAX(COUNT(E1.Event_ID)) FROM " + CitiesTable + " C1, " + EventsTable + " E1 " + 
                 "WHERE C1.City_ID = E1.Event_City_ID " + 
                 "GROUP BY C1.State_Name) " + 
-                "ORDER BY EventNum, C.State_Name ASC");
+                "ORDER BY EventNum, C.State_Name ASC",
+                FakebookOracleConstants.SmallFetchSize);
+            ResultSet rst = stmt.executeQuery();
 
             rst.next();
             EventStateInfo info = new EventStateInfo(rst.getInt(2));
@@ -576,6 +767,9 @@ public final class StudentFakebookOracle extends FakebookOracle {
             return info;                // placeholder for compilation
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
             return new EventStateInfo(-1);
         }
@@ -589,12 +783,12 @@ public final class StudentFakebookOracle extends FakebookOracle {
     //        (B) Find the ID, first name, and last name of the youngest friend of the user
     //            with User ID <userID>
     public AgeInfo findAgeInfo(long userID) throws SQLException {
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findAgeInfo")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo old = new UserInfo(12000000, "Galileo", "Galilei");
-                UserInfo young = new UserInfo(80000000, "Neil", "deGrasse Tyson");
+                UserInfo old = new UserInfo(names, 12000000, "Galileo", "Galilei");
+                UserInfo young = new UserInfo(names, 80000000, "Neil", "deGrasse Tyson");
                 return new AgeInfo(old, young);
             */
             /*
@@ -608,37 +802,160 @@ public final class StudentFakebookOracle extends FakebookOracle {
             )
             WHERE ROWNUM <= 1;*/
 
-            ResultSet rst = stmt.executeQuery(
-                " SELECT USER_ID, FIRST_NAME, LAST_NAME " + 
-                " FROM ( SELECT DISTINCT U2.YEAR_OF_BIRTH , U2.MONTH_OF_BIRTH , U2.DAY_OF_BIRTH , U2.USER_ID, U2.FIRST_NAME, U2.LAST_NAME " + 
+            PreparedStatement stmt = prepare(oracle,
+                " SELECT USER_ID " + 
+                " FROM ( SELECT DISTINCT U2.YEAR_OF_BIRTH , U2.MONTH_OF_BIRTH , U2.DAY_OF_BIRTH , U2.USER_ID " + 
                 "        FROM " + UsersTable + " U1, " + UsersTable + " U2, " + FriendsTable + " F " + 
-                "        WHERE U1.USER_ID = " + userID + " AND U1.USER_ID <> U2.USER_ID " +
+                "        WHERE U1.USER_ID = ? AND U1.USER_ID <> U2.USER_ID " +
                 "        AND ((U1.USER_ID = F.USER1_ID AND U2.USER_ID = F.USER2_ID) OR (U1.USER_ID = F.USER2_ID AND U2.USER_ID = F.USER1_ID))" + 
                 "        ORDER BY U2.YEAR_OF_BIRTH ASC, U2.MONTH_OF_BIRTH ASC, U2.DAY_OF_BIRTH ASC, U2.USER_ID DESC)" + 
-                " WHERE ROWNUM <= 1 ");
+                " WHERE ROWNUM <= 1 ",
+                FakebookOracleConstants.SmallFetchSize);
+            stmt.setLong(1, userID);
+            ResultSet rst = stmt.executeQuery();
 
-            rst.next();
-            UserInfo old = new UserInfo(rst.getInt(1), rst.getString(2), rst.getString(3));
+            if (!rst.next()) {
+                // no friends: the same ERROR result that the batch findAgeInfo reports, and
+                // not a failure, even when errors are thrown
+                rst.close();
+                stmt.close();
+                return new AgeInfo(new UserInfo(names, -1, "ERROR", "ERROR"), new UserInfo(names, -1, "ERROR", "ERROR"));
+            }
+            long oldID = rst.getLong(1);
+            rst.close();
+            stmt.close();
 
-            ResultSet rst1 = stmt.executeQuery(
-                " SELECT USER_ID, FIRST_NAME, LAST_NAME " + 
-                " FROM ( SELECT DISTINCT U2.YEAR_OF_BIRTH , U2.MONTH_OF_BIRTH , U2.DAY_OF_BIRTH , U2.USER_ID, U2.FIRST_NAME, U2.LAST_NAME " + 
+            PreparedStatement stmt1 = prepare(oracle,
+                " SELECT USER_ID " + 
+                " FROM ( SELECT DISTINCT U2.YEAR_OF_BIRTH , U2.MONTH_OF_BIRTH , U2.DAY_OF_BIRTH , U2.USER_ID " + 
                 "        FROM " + UsersTable + " U1, " + UsersTable + " U2, " + FriendsTable + " F " + 
-                "        WHERE U1.USER_ID = " + userID + " AND U1.USER_ID <> U2.USER_ID " +
+                "        WHERE U1.USER_ID = ? AND U1.USER_ID <> U2.USER_ID " +
                 "        AND ((U1.USER_ID = F.USER1_ID AND U2.USER_ID = F.USER2_ID) OR (U1.USER_ID = F.USER2_ID AND U2.USER_ID = F.USER1_ID))" + 
                 "        ORDER BY U2.YEAR_OF_BIRTH DESC, U2.MONTH_OF_BIRTH DESC, U2.DAY_OF_BIRTH DESC, U2.USER_ID DESC)" + 
-                " WHERE ROWNUM <= 1 ");
+                " WHERE ROWNUM <= 1 ",
+                FakebookOracleConstants.SmallFetchSize);
+            stmt1.setLong(1, userID);
+            ResultSet rst1 = stmt1.executeQuery();
 
             rst1.next();
-            UserInfo young = new UserInfo(rst1.getInt(1), rst1.getString(2), rst1.getString(3));
+            long youngID = rst1.getLong(1);
+            rst1.close();
+            stmt1.close();
 
+            ArrayList<Long> friendIDs = new ArrayList<Long>(2);
+            friendIDs.add(oldID);
+            friendIDs.add(youngID);
+            Map<Long, UserInfo> users = userCache.resolve(oracle, friendIDs);
+            UserInfo old = users.get(oldID);
+            UserInfo young = users.get(youngID);
+            if (old == null || young == null) {
+                throw new SQLException("User " + (old == null ? oldID : youngID) + " no longer exists");
+            }
 
             return new AgeInfo(old, young);                // placeholder for compilation
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
+            System.err.println(e.getMessage());
+            return new AgeInfo(new UserInfo(names, -1, "ERROR", "ERROR"), new UserInfo(names, -1, "ERROR", "ERROR"));
+        }
+    }
+    
+    @Override
+    // Query 8 (Batch)
+    // -----------------------------------------------------------------------------------
+    // GOALS: (A) Find the ID, first name, and last name of the oldest and of the youngest
+    //            friend of every user in <userIDs>
+    //
+    // The friendships of a whole chunk of users are unfolded in both directions and ranked
+    // per user with ROW_NUMBER(), once oldest first and once youngest first, so a chunk of
+    // up to BatchSize users costs one statement instead of two per user. The last chunk is
+    // padded with its final ID so that every chunk runs the same cached statement
+    public Map<Long, AgeInfo> findAgeInfo(Collection<Long> userIDs) throws SQLException {
+        Map<Long, AgeInfo> results = new LinkedHashMap<Long, AgeInfo>();
+        ArrayList<Long> batch = new ArrayList<Long>();
+        for (Long userID : userIDs) {
+            if (!results.containsKey(userID)) {
+                results.put(userID, null);
+                batch.add(userID);
+            }
+        }
+        
+        HashMap<Long, Long> oldestIDs = new HashMap<Long, Long>();
+        HashMap<Long, Long> youngestIDs = new HashMap<Long, Long>();
+        Map<Long, UserInfo> users = new HashMap<Long, UserInfo>();
+        try (Connection oracle = borrow("findAgeInfo(batch)")) {
+            int size = FakebookOracleConstants.BatchSize;
+            StringBuilder ids = new StringBuilder("?");
+            for (int idx = 1; idx < size; idx++) {
+                ids.append(", ?");
+            }
+            
+            PreparedStatement stmt = prepare(oracle,
+                " SELECT USER_ID, FRIEND_ID, OLDEST_RANK, YOUNGEST_RANK " +
+                " FROM ( SELECT A.USER_ID, U2.USER_ID AS FRIEND_ID, " +
+                "          ROW_NUMBER() OVER (PARTITION BY A.USER_ID " +
+                "            ORDER BY U2.YEAR_OF_BIRTH ASC, U2.MONTH_OF_BIRTH ASC, U2.DAY_OF_BIRTH ASC, U2.USER_ID DESC) AS OLDEST_RANK, " +
+                "          ROW_NUMBER() OVER (PARTITION BY A.USER_ID " +
+                "            ORDER BY U2.YEAR_OF_BIRTH DESC, U2.MONTH_OF_BIRTH DESC, U2.DAY_OF_BIRTH DESC, U2.USER_ID DESC) AS YOUNGEST_RANK " +
+                "        FROM ( SELECT USER1_ID AS USER_ID, USER2_ID AS FRIEND_ID FROM " + FriendsTable + " WHERE USER1_ID IN (" + ids + ") " +
+                "               UNION ALL " +
+                "               SELECT USER2_ID AS USER_ID, USER1_ID AS FRIEND_ID FROM " + FriendsTable + " WHERE USER2_ID IN (" + ids + ") ) A, " +
+                "             " + UsersTable + " U1, " + UsersTable + " U2 " +
+                "        WHERE U1.USER_ID = A.USER_ID AND U2.USER_ID = A.FRIEND_ID AND U1.USER_ID <> U2.USER_ID ) " +
+                " WHERE OLDEST_RANK = 1 OR YOUNGEST_RANK = 1",
+                FakebookOracleConstants.LargeFetchSize);
+            
+            for (int begin = 0; begin < batch.size(); begin += size) {
+                for (int idx = 0; idx < size; idx++) {
+                    long userID = batch.get(Math.min(begin + idx, batch.size() - 1));
+                    stmt.setLong(idx + 1, userID);
+                    stmt.setLong(size + idx + 1, userID);
+                }
+                ResultSet rst = stmt.executeQuery();
+                
+                while (rst.next()) {
+                    long userID = rst.getLong(1);
+                    long friendID = rst.getLong(2);
+                    if (rst.getInt(3) == 1) {
+                        oldestIDs.put(userID, friendID);
+                    }
+                    if (rst.getInt(4) == 1) {
+                        youngestIDs.put(userID, friendID);
+                    }
+                }
+                rst.close();
+            }
+            
+            stmt.close();
+            
+            ArrayList<Long> friendIDs = new ArrayList<Long>(oldestIDs.values());
+            friendIDs.addAll(youngestIDs.values());
+            users = userCache.resolve(oracle, friendIDs);
+        }
+        catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
-            return new AgeInfo(new UserInfo(-1, "ERROR", "ERROR"), new UserInfo(-1, "ERROR", "ERROR"));
+            oldestIDs.clear();
         }
+        
+        // users without friends, unknown users, and all users after an error get the same
+        // ERROR result that findAgeInfo(long) reports
+        for (Long userID : batch) {
+            UserInfo old = oldestIDs.containsKey(userID) ? users.get(oldestIDs.get(userID)) : null;
+            UserInfo young = youngestIDs.containsKey(userID) ? users.get(youngestIDs.get(userID)) : null;
+            if (old == null || young == null) {
+                results.put(userID, new AgeInfo(new UserInfo(names, -1, "ERROR", "ERROR"), new UserInfo(names, -1, "ERROR", "ERROR")));
+            }
+            else {
+                results.put(userID, new AgeInfo(old, young));
+            }
+        }
+        return results;
     }
     
     @Override
@@ -652,44 +969,84 @@ public final class StudentFakebookOracle extends FakebookOracle {
     public FakebookArrayList<SiblingInfo> findPotentialSiblings() throws SQLException {
         FakebookArrayList<SiblingInfo> results = new FakebookArrayList<SiblingInfo>("\n");
         
-        try (Statement stmt = oracle.createStatement(FakebookOracleConstants.AllScroll, FakebookOracleConstants.ReadOnly)) {
+        try (Connection oracle = borrow("findPotentialSiblings")) {
             /*
                 EXAMPLE DATA STRUCTURE USAGE
                 ============================================
-                UserInfo u1 = new UserInfo(81023, "Kim", "Kardashian");
-                UserInfo u2 = new UserInfo(17231, "Kourtney", "Kardashian");
+                UserInfo u1 = new UserInfo(names, 81023, "Kim", "Kardashian");
+                UserInfo u2 = new UserInfo(names, 17231, "Kourtney", "Kardashian");
                 SiblingInfo si = new SiblingInfo(u1, u2);
                 results.add(si);
             */
 
-            ResultSet rst = stmt.executeQuery(
-                "SELECT U1.User_ID, U2.User_ID, U1.First_Name, U1.Last_Name, U2.First_Name, U2.Last_Name " + 
+            PreparedStatement stmt = prepare(oracle,
+                "SELECT U1.User_ID, U2.User_ID " + 
                 "FROM " + UsersTable + " U1, " + UsersTable + " U2, " + FriendsTable + " F, " + HometownCitiesTable + " H1, " + HometownCitiesTable + " H2 " + 
                 "WHERE U1.User_ID < U2.User_ID AND U1.Last_Name = U2.Last_Name AND F.User1_ID = U1.User_ID AND F.User2_ID = U2.User_ID AND " + 
                 "ABS(U1.Year_of_Birth - U2.Year_of_Birth) < 10 AND H1.User_ID = U1.User_ID AND H2.User_ID = U2.User_ID AND " + 
                 "H1.Hometown_City_ID = H2.Hometown_City_ID " + 
-                "ORDER BY U1.User_ID ASC, U2.User_ID ASC");
+                "ORDER BY U1.User_ID ASC, U2.User_ID ASC",
+                FakebookOracleConstants.LargeFetchSize);
+            ResultSet rst = stmt.executeQuery();
 
+            // only the IDs are selected; userCache supplies the names
+            ArrayList<Long> userIDs = new ArrayList<Long>();
             while (rst.next()) {
-                UserInfo u1 = new UserInfo(rst.getInt(1), rst.getString(3), rst.getString(4));
-                UserInfo u2 = new UserInfo(rst.getInt(2), rst.getString(5), rst.getString(6));
-                SiblingInfo si = new SiblingInfo(u1, u2);
-                results.add(si);
+                userIDs.add(rst.getLong(1));
+                userIDs.add(rst.getLong(2));
             }
 
             rst.close();
             stmt.close();
 
+            Map<Long, UserInfo> users = userCache.resolve(oracle, userIDs);
+            for (int idx = 0; idx < userIDs.size(); idx += 2) {
+                UserInfo u1 = users.get(userIDs.get(idx));
+                UserInfo u2 = users.get(userIDs.get(idx + 1));
+                if (u1 != null && u2 != null) {
+                    SiblingInfo si = new SiblingInfo(u1, u2);
+                    results.add(si);
+                }
+            }
+
         }
         catch (SQLException e) {
+            if (propagateErrors) {
+                throw e;
+            }
             System.err.println(e.getMessage());
         }
         
         return results;
     }
     
+    // [Borrow Connection Function]
+    // EFFECTS:  returns a connection borrowed from <pool> for query function <method>,
+    //           instrumented if metrics are being recorded
+    private Connection borrow(String method) throws SQLException {
+        Connection oracle = pool.borrow();
+        FakebookJdbcMetrics recorder = metrics;
+        return recorder == null ? oracle : recorder.instrument(oracle, method);
+    }
+    
+    // [Prepare Statement Function]
+    // REQUIRES: <oracle> is a connection borrowed from <pool>
+    // EFFECTS:  returns a read-only PreparedStatement for <sql> using the current cursor type
+    //           and <fetchSize> rows per round trip, unless a fetch size override is set
+    private PreparedStatement prepare(Connection oracle, String sql, int fetchSize) throws SQLException {
+        PreparedStatement stmt = oracle.prepareStatement(sql, resultSetType, FakebookOracleConstants.ReadOnly);
+        stmt.setFetchSize(fetchSizeOverride > 0 ? fetchSizeOverride : fetchSize);
+        return stmt;
+    }
+    
     // Member Variables
-    private Connection oracle;
+    private FakebookConnectionPool pool;
+    private volatile int resultSetType;
+    private volatile int fetchSizeOverride;
+    private volatile FakebookJdbcMetrics metrics;
+    private volatile boolean propagateErrors;
+    private final FakebookNameDictionary names = new FakebookNameDictionary();
+    private final FakebookUserCache userCache = new FakebookUserCache(FakebookOracleConstants.UserCacheSize, names);
     private final String UsersTable = FakebookOracleConstants.UsersTable;
     private final String CitiesTable = FakebookOracleConstants.CitiesTable;
     private final String FriendsTable = FakebookOracleConstants.FriendsTable;